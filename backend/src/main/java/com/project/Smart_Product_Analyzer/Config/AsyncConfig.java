@@ -1,6 +1,8 @@
 package com.project.Smart_Product_Analyzer.Config;
 
+import com.project.Smart_Product_Analyzer.Service.CancellationScope;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
@@ -27,6 +29,26 @@ public class AsyncConfig implements AsyncConfigurer {
         executor.setQueueCapacity(25);
 
         executor.setThreadNamePrefix("AsyncThread-");
+
+        // Tasks run in the cancellation scope of the analysis that submitted them
+        executor.setTaskDecorator(CancellationScope::wrap);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool for review batch LLM calls. Kept apart from taskExecutor, whose threads block waiting
+     * for these batches, and bounded so one product cannot flood the model endpoint.
+     */
+    @Bean(name = "llmExecutor")
+    public ThreadPoolTaskExecutor llmExecutor(@Value("${ai.batch.concurrency:4}") int concurrency,
+            @Value("${ai.batch.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("LlmThread-");
+        executor.setTaskDecorator(CancellationScope::wrap);
         executor.initialize();
         return executor;
     }
@@ -0,0 +1,190 @@
+package com.project.Smart_Product_Analyzer.Config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WindowType;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One Chrome process hosting several tabs, each handed out as its own WebDriver.
+ * WebDriver commands act on the session's "current window", so every call made through a tab
+ * handle takes the browser lock and switches to its window first. Page loads themselves run in
+ * parallel because multiplexed browsers are started with the NONE page load strategy.
+ * <p>
+ * The same routing applies to everything a tab hands back: elements, and the navigate(),
+ * manage(), switchTo() and wrapped-driver objects. A tab cannot switch to or open another
+ * window itself, and since switching windows resets the frame, a tab that works inside a frame
+ * must not assume it is still there after another tab has run a command.
+ */
+@Slf4j
+public class MultiplexedBrowser {
+
+    private final WebDriver driver;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Set<String> openTabs = ConcurrentHashMap.newKeySet();
+    private final Class<?>[] driverInterfaces;
+
+    // Window the underlying session is currently pointed at (guarded by lock)
+    private String currentHandle;
+    // The window Chrome starts with is handed out as the first tab
+    private String initialHandle;
+
+    public MultiplexedBrowser(WebDriver driver) {
+        this.driver = driver;
+        this.driverInterfaces = ClassUtils.getAllInterfaces(driver);
+        this.initialHandle = driver.getWindowHandle();
+        this.currentHandle = initialHandle;
+    }
+
+    public WebDriver openTab() {
+        lock.lock();
+        try {
+            String handle;
+            if (initialHandle != null) {
+                handle = initialHandle;
+                initialHandle = null;
+            } else {
+                driver.switchTo().newWindow(WindowType.TAB);
+                handle = driver.getWindowHandle();
+                currentHandle = handle;
+            }
+            openTabs.add(handle);
+            log.debug("Opened tab {} ({} open in this browser)", handle, openTabs.size());
+            Tab tab = new Tab(handle);
+            tab.proxy = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(), driverInterfaces,
+                    new TabHandler(driver, tab));
+            return tab.proxy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes a tab. The browser process is quit together with its last tab.
+     */
+    public void closeTab(WebDriver tab) {
+        String handle = ((TabHandler) Proxy.getInvocationHandler(tab)).tab.handle;
+        lock.lock();
+        try {
+            if (!openTabs.remove(handle))
+                return;
+            if (openTabs.isEmpty()) {
+                driver.quit();
+                return;
+            }
+            try {
+                driver.switchTo().window(handle);
+                driver.close();
+            } catch (Exception e) {
+                log.debug("Tab {} already gone: {}", handle, e.getMessage());
+            }
+            // Point the session at a window that still exists
+            currentHandle = openTabs.iterator().next();
+            driver.switchTo().window(currentHandle);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getOpenTabs() {
+        return openTabs.size();
+    }
+
+    public boolean isClosed() {
+        return openTabs.isEmpty() && initialHandle == null;
+    }
+
+    public void quit() {
+        lock.lock();
+        try {
+            openTabs.clear();
+            initialHandle = null;
+            driver.quit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Object wrapResult(Object result, Method method, Tab tab) {
+        if (result == null)
+            return null;
+        // switchTo().defaultContent(), getWrappedDriver() and friends lead back to the tab itself
+        if (result == driver)
+            return tab.proxy;
+        if (result instanceof List<?> list && !list.isEmpty() && list.get(0) instanceof WebElement) {
+            List<Object> wrapped = new ArrayList<>(list.size());
+            for (Object item : list) {
+                wrapped.add(proxy(item, tab));
+            }
+            return wrapped;
+        }
+        // Elements, Navigation, Options, Logs, TargetLocator, Alert...: anything that talks to the session
+        Class<?> type = method.getReturnType();
+        if (type.isInterface() && type.getName().startsWith("org.openqa.selenium.")) {
+            return proxy(result, tab);
+        }
+        return result;
+    }
+
+    private Object proxy(Object target, Tab tab) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), ClassUtils.getAllInterfaces(target),
+                new TabHandler(target, tab));
+    }
+
+    private static final class Tab {
+        private final String handle;
+        private WebDriver proxy;
+
+        private Tab(String handle) {
+            this.handle = handle;
+        }
+    }
+
+    /**
+     * Routes calls on a tab (or on anything obtained from it) to the right window.
+     */
+    private final class TabHandler implements InvocationHandler {
+        private final Object target;
+        private final Tab tab;
+
+        private TabHandler(Object target, Tab tab) {
+            this.target = target;
+            this.tab = tab;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (target == driver && ("quit".equals(method.getName()) || "close".equals(method.getName()))) {
+                closeTab((WebDriver) proxy);
+                return null;
+            }
+            if (target instanceof WebDriver.TargetLocator
+                    && ("window".equals(method.getName()) || "newWindow".equals(method.getName()))) {
+                throw new UnsupportedOperationException("A multiplexed tab cannot switch windows, lease another tab");
+            }
+            lock.lock();
+            try {
+                if (!tab.handle.equals(currentHandle)) {
+                    driver.switchTo().window(tab.handle);
+                    currentHandle = tab.handle;
+                }
+                return wrapResult(method.invoke(target, args), method, tab);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
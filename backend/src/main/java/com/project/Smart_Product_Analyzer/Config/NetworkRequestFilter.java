@@ -0,0 +1,242 @@
+package com.project.Smart_Product_Analyzer.Config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Blocks images, fonts, media and third-party trackers in every browser session through the
+ * DevTools protocol (Network.setBlockedURLs). Chrome ignores --disable-images in headless mode,
+ * so without this every Amazon page still downloads megabytes we never read.
+ * <p>
+ * Rules are URL patterns; resource types are expanded into file-extension patterns. Any rule
+ * listed in the allow-list is dropped from the block set. Per-page counters come from the
+ * chromedriver performance log, which reports requests failed with blockedReason "inspector".
+ * <p>
+ * That log belongs to the whole browser, not one tab: in multi-tab mode whichever tab reads it
+ * also drains its siblings' events. Every entry names the DevTools target (tab) it came from, so
+ * drained entries are sorted into per-tab counters and each tab is handed only its own. The pool
+ * drains the log whenever a session goes back, so sessions that never ask for stats don't let
+ * it grow.
+ */
+@Slf4j
+@Component
+public class NetworkRequestFilter {
+
+    private static final Map<String, List<String>> RESOURCE_TYPE_PATTERNS = Map.of(
+            "Image", List.of("*.jpg*", "*.jpeg*", "*.png*", "*.gif*", "*.webp*", "*.svg*", "*.ico*"),
+            "Font", List.of("*.woff*", "*.woff2*", "*.ttf*", "*.otf*"),
+            "Media", List.of("*.mp4*", "*.webm*", "*.m3u8*", "*.mp3*"));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean enabled;
+    private final List<String> blockedPatterns;
+
+    private final LongAdder totalBlockedRequests = new LongAdder();
+    private final LongAdder totalLoadedRequests = new LongAdder();
+    private final LongAdder totalLoadedBytes = new LongAdder();
+    private final Map<String, LongAdder> blockedByType = new ConcurrentHashMap<>();
+
+    // Session (tab proxy or dedicated driver) -> its target id, and target id -> what was drained
+    // for it since its last report. Both guarded by pending's monitor, which is also held while a
+    // log is drained so entries reach their tab before that tab can read its counters
+    private final Map<WebDriver, String> targets = new IdentityHashMap<>();
+    private final Map<String, Counts> pending = new HashMap<>();
+
+    public NetworkRequestFilter(@Value("${scraper.block.enabled:true}") boolean enabled,
+            @Value("${scraper.block.resource-types:Image,Font,Media}") List<String> resourceTypes,
+            @Value("${scraper.block.url-patterns:*amazon-adsystem.com*,*doubleclick.net*,*google-analytics.com*,*googletagmanager.com*,*fls-na.amazon.*,*fls-eu.amazon.*,*unagi.amazon.*,*/uedata*}") List<String> urlPatterns,
+            @Value("${scraper.block.allow-list:}") List<String> allowList) {
+        this.enabled = enabled;
+
+        Set<String> patterns = new LinkedHashSet<>(urlPatterns);
+        for (String type : resourceTypes) {
+            patterns.addAll(RESOURCE_TYPE_PATTERNS.getOrDefault(type.trim(), List.of()));
+        }
+        allowList.forEach(allowed -> patterns.remove(allowed.trim()));
+        patterns.removeIf(String::isBlank);
+        this.blockedPatterns = new ArrayList<>(patterns);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Installs the block list on a session (or on the current tab of a multiplexed browser).
+     */
+    public void apply(WebDriver driver) {
+        if (!enabled)
+            return;
+        try {
+            String target = targetId(driver.getWindowHandle());
+            synchronized (pending) {
+                targets.put(driver, target);
+                pending.put(target, new Counts());
+            }
+        } catch (Exception e) {
+            log.debug("Could not register session for network stats: {}", e.getMessage());
+        }
+        if (!(driver instanceof HasCdp cdp)) {
+            log.debug("Driver does not speak CDP, request blocking skipped");
+            return;
+        }
+        try {
+            cdp.executeCdpCommand("Network.enable", Map.of());
+            cdp.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", blockedPatterns));
+            log.debug("Installed {} request block patterns", blockedPatterns.size());
+        } catch (Exception e) {
+            log.warn("Failed to install request blocking: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Counts blocked and loaded requests of this session's tab since the last call (or since it
+     * was leased). Sibling tabs' entries drained on the way are kept for them.
+     */
+    public PageStats collectStats(WebDriver driver) {
+        if (!enabled)
+            return PageStats.EMPTY;
+        Counts counts;
+        synchronized (pending) {
+            drain(driver);
+            String target = targets.get(driver);
+            counts = target != null ? pending.put(target, new Counts()) : null;
+        }
+        return counts != null ? counts.toPageStats() : PageStats.EMPTY;
+    }
+
+    /**
+     * Called when a session goes back to the pool: drains the log and drops this tab's unread
+     * counters, so the next lease starts from zero.
+     */
+    public void reset(WebDriver driver) {
+        if (!enabled)
+            return;
+        synchronized (pending) {
+            drain(driver);
+            String target = targets.get(driver);
+            if (target != null)
+                pending.put(target, new Counts());
+        }
+    }
+
+    /**
+     * Called before a session is quit; entries still arriving for it are no longer kept.
+     */
+    public void forget(WebDriver driver) {
+        synchronized (pending) {
+            String target = targets.remove(driver);
+            if (target != null)
+                pending.remove(target);
+        }
+    }
+
+    // Caller holds pending's monitor
+    private void drain(WebDriver driver) {
+        List<LogEntry> entries;
+        try {
+            entries = driver.manage().logs().get(LogType.PERFORMANCE).getAll();
+        } catch (Exception e) {
+            // Performance logging not enabled for this session, or the session is gone
+            return;
+        }
+
+        String own = targets.get(driver);
+        for (LogEntry entry : entries) {
+            try {
+                JsonNode root = objectMapper.readTree(entry.getMessage());
+                JsonNode message = root.path("message");
+                String method = message.path("method").asText();
+                JsonNode params = message.path("params");
+                boolean blocked = "Network.loadingFailed".equals(method)
+                        && "inspector".equals(params.path("blockedReason").asText());
+                boolean loaded = "Network.loadingFinished".equals(method);
+                if (!blocked && !loaded)
+                    continue;
+
+                // Entries of closed or unknown tabs only go into the totals
+                String webview = root.path("webview").asText(null);
+                Counts counts = pending.get(webview != null ? targetId(webview) : own);
+                if (blocked) {
+                    String type = params.path("type").asText("Other");
+                    totalBlockedRequests.increment();
+                    blockedByType.computeIfAbsent(type, t -> new LongAdder()).increment();
+                    if (counts != null)
+                        counts.blocked(type);
+                } else {
+                    long bytes = params.path("encodedDataLength").asLong();
+                    totalLoadedRequests.increment();
+                    totalLoadedBytes.add(bytes);
+                    if (counts != null)
+                        counts.loaded(bytes);
+                }
+            } catch (Exception e) {
+                // Skip malformed entries
+            }
+        }
+    }
+
+    // Window handles and log entries name the same DevTools target, older chromedrivers with a prefix
+    private static String targetId(String handleOrWebview) {
+        String id = handleOrWebview.startsWith("CDwindow-") ? handleOrWebview.substring("CDwindow-".length())
+                : handleOrWebview;
+        return id.toUpperCase(Locale.ROOT);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("blockedRequests", totalBlockedRequests.sum());
+        metrics.put("loadedRequests", totalLoadedRequests.sum());
+        metrics.put("loadedBytes", totalLoadedBytes.sum());
+        Map<String, Long> byType = new LinkedHashMap<>();
+        blockedByType.forEach((type, count) -> byType.put(type, count.sum()));
+        metrics.put("blockedByType", byType);
+        return metrics;
+    }
+
+    private static final class Counts {
+        private int blocked;
+        private final Map<String, Integer> blockedTypes = new LinkedHashMap<>();
+        private int loaded;
+        private long loadedBytes;
+
+        private void blocked(String type) {
+            blocked++;
+            blockedTypes.merge(type, 1, Integer::sum);
+        }
+
+        private void loaded(long bytes) {
+            loaded++;
+            loadedBytes += bytes;
+        }
+
+        private PageStats toPageStats() {
+            return new PageStats(blocked, blockedTypes, loaded, loadedBytes);
+        }
+    }
+
+    public record PageStats(int blockedRequests, Map<String, Integer> blockedByType, int loadedRequests,
+            long loadedBytes) {
+        public static final PageStats EMPTY = new PageStats(0, Map.of(), 0, 0);
+    }
+}
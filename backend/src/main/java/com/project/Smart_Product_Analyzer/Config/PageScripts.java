@@ -0,0 +1,41 @@
+package com.project.Smart_Product_Analyzer.Config;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the in-page extraction scripts from classpath:scripts/ once and keeps them in memory,
+ * since they are sent with every executeScript call.
+ */
+@Component
+public class PageScripts {
+    private final ResourceLoader resourceLoader;
+    private final Map<String, String> scripts = new ConcurrentHashMap<>();
+
+    public PageScripts(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    public String get(String nameOfFile) {
+        return scripts.computeIfAbsent(nameOfFile, this::load);
+    }
+
+    private String load(String nameOfFile) {
+        Resource resource = resourceLoader.getResource("classpath:scripts/" + nameOfFile);
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            return FileCopyUtils.copyToString(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load page script " + nameOfFile, e);
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package com.project.Smart_Product_Analyzer.Config;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.stereotype.Component;
 import org.springframework.util.FileCopyUtils;
 
@@ -9,22 +15,127 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Registry of the prompt templates in classpath:prompts/. Every file is read and compiled into a
+ * {@link PromptTemplate} once at startup, so an LLM call only renders.
+ * <p>
+ * With prompts.watch-dir pointing at a directory of prompt files (e.g. src/main/resources/prompts
+ * during development), those files override the classpath ones and are recompiled when they
+ * change on disk. A file that fails to compile keeps its previous version.
+ */
+@Slf4j
 @Component
 public class PromptLoader {
     private final ResourceLoader resourceLoader;
+    private final String watchDir;
+    private final Map<String, PromptTemplate> templates = new ConcurrentHashMap<>();
 
-    public PromptLoader(ResourceLoader resourceLoader){
+    private WatchService watchService;
+
+    public PromptLoader(ResourceLoader resourceLoader,
+            @Value("${prompts.watch-dir:}") String watchDir) {
         this.resourceLoader = resourceLoader;
+        this.watchDir = watchDir;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(resourceLoader);
+        for (Resource resource : resolver.getResources("classpath:prompts/*.txt")) {
+            String name = resource.getFilename();
+            templates.put(name, PromptTemplate.compile(name, read(resource)));
+        }
+        if (!watchDir.isBlank()) {
+            watch(Path.of(watchDir));
+        }
+        log.info("Compiled {} prompt templates{}", templates.size(),
+                watchService != null ? ", watching " + watchDir + " for changes" : "");
+    }
+
+    /**
+     * Returns the compiled template for a file in prompts/.
+     */
+    public PromptTemplate template(String nameOfFile) {
+        PromptTemplate template = templates.get(nameOfFile);
+        if (template == null)
+            throw new IllegalArgumentException("No prompt template " + nameOfFile);
+        return template;
     }
+
     public String loadPromptFile(String nameOfFile) throws IOException {
-        Resource resource = resourceLoader.getResource("classpath:prompts/"+nameOfFile);
-        try{
-            Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8);
+        PromptTemplate template = templates.get(nameOfFile);
+        if (template == null)
+            throw new IOException("Error in Input/ Output Operation");
+        return template.getSource();
+    }
+
+    private String read(Resource resource) throws IOException {
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
             return FileCopyUtils.copyToString(reader);
         }
-        catch (Exception e){
-            throw new IOException("Error in Input/ Output Operation");
+    }
+
+    private void watch(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            log.warn("prompts.watch-dir {} is not a directory, hot reload is off", dir);
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.txt")) {
+            for (Path file : files) {
+                reload(file);
+            }
+        }
+        watchService = dir.getFileSystem().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watcher = new Thread(() -> watchLoop(dir), "PromptWatcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchLoop(Path dir) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path file && file.toString().endsWith(".txt")) {
+                        reload(dir.resolve(file));
+                    }
+                }
+                if (!key.reset())
+                    return;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
         }
     }
+
+    private void reload(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            PromptTemplate template = PromptTemplate.compile(name, Files.readString(file, StandardCharsets.UTF_8));
+            PromptTemplate previous = templates.put(name, template);
+            if (previous != null && !previous.getSource().equals(template.getSource())) {
+                log.info("Reloaded prompt template {}", name);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not reload prompt template {}, keeping the previous one: {}", name, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watchService != null)
+            watchService.close();
+    }
 }
@@ -0,0 +1,178 @@
+package com.project.Smart_Product_Analyzer.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A prompt file parsed once into literal text and placeholders, rendered into one buffer sized
+ * up front instead of a {@code String.replace} pass per placeholder.
+ * <p>
+ * Placeholders are {@code {name}} for a text value, or {@code {name:lines}} for a list of values
+ * joined with newlines (e.g. a batch of reviews), so callers can pass the list as it is. Other
+ * braces are left as literal text.
+ */
+public final class PromptTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z_][A-Za-z0-9_]*)(?::(text|lines))?}");
+
+    public enum Type {
+        TEXT, LINES
+    }
+
+    private sealed interface Segment permits Literal, Placeholder {
+    }
+
+    private record Literal(String text) implements Segment {
+    }
+
+    private record Placeholder(String name, Type type) implements Segment {
+    }
+
+    private final String name;
+    private final String source;
+    private final String version;
+    private final Segment[] segments;
+    private final Map<String, Type> placeholders;
+    private final int literalLength;
+
+    private PromptTemplate(String name, String source, Segment[] segments, Map<String, Type> placeholders,
+            int literalLength) {
+        this.name = name;
+        this.source = source;
+        this.version = versionOf(source);
+        this.segments = segments;
+        this.placeholders = placeholders;
+        this.literalLength = literalLength;
+    }
+
+    public static PromptTemplate compile(String name, String source) {
+        List<Segment> segments = new ArrayList<>();
+        Map<String, Type> placeholders = new LinkedHashMap<>();
+        int literalLength = 0;
+        int last = 0;
+        Matcher matcher = PLACEHOLDER.matcher(source);
+        while (matcher.find()) {
+            if (matcher.start() > last) {
+                segments.add(new Literal(source.substring(last, matcher.start())));
+                literalLength += matcher.start() - last;
+            }
+            Type type = "lines".equals(matcher.group(2)) ? Type.LINES : Type.TEXT;
+            Type previous = placeholders.putIfAbsent(matcher.group(1), type);
+            if (previous != null && previous != type) {
+                throw new IllegalArgumentException("Placeholder {" + matcher.group(1) + "} in " + name
+                        + " is used both as " + previous + " and " + type);
+            }
+            segments.add(new Placeholder(matcher.group(1), type));
+            last = matcher.end();
+        }
+        if (last < source.length()) {
+            segments.add(new Literal(source.substring(last)));
+            literalLength += source.length() - last;
+        }
+        return new PromptTemplate(name, source, segments.toArray(Segment[]::new), Map.copyOf(placeholders),
+                literalLength);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Short hash of the template text; changes whenever the prompt file is edited.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public Map<String, Type> getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * Renders a template with a single placeholder.
+     */
+    public String render(String placeholder, Object value) {
+        return render(Map.of(placeholder, value));
+    }
+
+    /**
+     * Fills every placeholder from {@code values}: a CharSequence for TEXT, a Collection of
+     * CharSequences for LINES. A missing or mistyped value is an IllegalArgumentException.
+     */
+    public String render(Map<String, ?> values) {
+        int capacity = literalLength;
+        for (Segment segment : segments) {
+            if (segment instanceof Placeholder placeholder)
+                capacity += valueLength(placeholder, values.get(placeholder.name()));
+        }
+
+        StringBuilder out = new StringBuilder(capacity);
+        for (Segment segment : segments) {
+            if (segment instanceof Literal literal) {
+                out.append(literal.text());
+            } else if (segment instanceof Placeholder placeholder) {
+                append(out, placeholder, values.get(placeholder.name()));
+            }
+        }
+        return out.toString();
+    }
+
+    private int valueLength(Placeholder placeholder, Object value) {
+        if (placeholder.type() == Type.TEXT) {
+            if (!(value instanceof CharSequence text))
+                throw mistyped(placeholder, value);
+            return text.length();
+        }
+        if (!(value instanceof Collection<?> lines))
+            throw mistyped(placeholder, value);
+        int length = Math.max(0, lines.size() - 1);
+        for (Object line : lines) {
+            if (!(line instanceof CharSequence text))
+                throw mistyped(placeholder, value);
+            length += text.length();
+        }
+        return length;
+    }
+
+    private void append(StringBuilder out, Placeholder placeholder, Object value) {
+        if (placeholder.type() == Type.TEXT) {
+            out.append((CharSequence) value);
+            return;
+        }
+        boolean first = true;
+        for (Object line : (Collection<?>) value) {
+            if (!first)
+                out.append('\n');
+            out.append((CharSequence) line);
+            first = false;
+        }
+    }
+
+    private static String versionOf(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private IllegalArgumentException mistyped(Placeholder placeholder, Object value) {
+        String got = value == null ? "nothing" : value.getClass().getSimpleName();
+        return new IllegalArgumentException("Placeholder {" + placeholder.name() + "} of " + name + " expects "
+                + (placeholder.type() == Type.TEXT ? "text" : "a collection of lines") + ", got " + got);
+    }
+}
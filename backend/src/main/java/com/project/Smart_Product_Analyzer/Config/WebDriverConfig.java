@@ -1,18 +1,25 @@
 package com.project.Smart_Product_Analyzer.Config;
 
+import org.openqa.selenium.PageLoadStrategy;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.logging.LogType;
 import org.openqa.selenium.remote.RemoteWebDriver;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Map;
 
 @Configuration
 public class WebDriverConfig {
 
+    @Value("${scraper.pool.tabs-per-browser:1}")
+    private int tabsPerBrowser;
+
     @Bean(destroyMethod = "quit")
     @org.springframework.context.annotation.Scope("prototype")
     public WebDriver webDriver() throws MalformedURLException {
@@ -36,6 +43,11 @@ public class WebDriverConfig {
         options.addArguments("--disable-dev-shm-usage");
         options.addArguments("--window-size=1920,1080");
 
+        // Multi-tab mode: don't block the shared session while a tab loads, so loads overlap
+        if (tabsPerBrowser > 1) {
+            options.setPageLoadStrategy(PageLoadStrategy.NONE);
+        }
+
         // STEALTH: Hide Automation Flags
         options.addArguments("--disable-blink-features=AutomationControlled");
         options.setExperimentalOption("excludeSwitches", new String[] { "enable-automation" });
@@ -49,7 +61,9 @@ public class WebDriverConfig {
         // Disable potentially flagging features
         options.addArguments("--disable-extensions");
         options.addArguments("--disable-plugins");
-        options.addArguments("--disable-images"); // Save bandwidth, but can sometimes trigger bot checks? Usually fine.
+        // Images, fonts, media and trackers are blocked over CDP by NetworkRequestFilter
+        // (--disable-images is ignored by headless Chrome). The performance log lets it count them.
+        options.setCapability("goog:loggingPrefs", Map.of(LogType.PERFORMANCE, "ALL"));
 
         // return new RemoteWebDriver(new URL("http://localhost:4444/wd/hub"), options);
         return new ChromeDriver(options);
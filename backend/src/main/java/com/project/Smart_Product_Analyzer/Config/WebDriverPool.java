@@ -0,0 +1,265 @@
+package com.project.Smart_Product_Analyzer.Config;
+
+import com.project.Smart_Product_Analyzer.Exception.ScrapingException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of reusable Chrome sessions.
+ * Sessions are leased for one scrape and handed back afterwards, so the browser launch cost is paid
+ * once per session instead of once per product page.
+ * With {@code scraper.pool.tabs-per-browser} above 1, a session is a tab and several tabs share
+ * one Chrome process (see {@link MultiplexedBrowser}).
+ */
+@Slf4j
+@Component
+public class WebDriverPool {
+
+    private final ObjectFactory<WebDriver> webDriverFactory;
+    private final NetworkRequestFilter networkRequestFilter;
+
+    // Caps the number of live sessions (leased + idle)
+    private final Semaphore permits;
+    private final Deque<PooledSession> idleSessions = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger liveCount = new AtomicInteger();
+    // Chrome processes hosting tabs, only used in multi-tab mode
+    private final List<MultiplexedBrowser> browsers = new CopyOnWriteArrayList<>();
+
+    private final int maxSessions;
+    private final int maxIdleSessions;
+    private final int maxUsesPerSession;
+    private final long leaseTimeoutMs;
+    private final int tabsPerBrowser;
+
+    private volatile boolean shutdown = false;
+
+    @Autowired
+    public WebDriverPool(ObjectFactory<WebDriver> webDriverFactory, NetworkRequestFilter networkRequestFilter,
+            @Value("${scraper.pool.max-sessions:5}") int maxSessions,
+            @Value("${scraper.pool.max-idle-sessions:3}") int maxIdleSessions,
+            @Value("${scraper.pool.max-uses-per-session:25}") int maxUsesPerSession,
+            @Value("${scraper.pool.lease-timeout-ms:60000}") long leaseTimeoutMs,
+            @Value("${scraper.pool.tabs-per-browser:1}") int tabsPerBrowser) {
+        this.webDriverFactory = webDriverFactory;
+        this.networkRequestFilter = networkRequestFilter;
+        this.maxSessions = maxSessions;
+        this.maxIdleSessions = maxIdleSessions;
+        this.maxUsesPerSession = maxUsesPerSession;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.tabsPerBrowser = Math.max(1, tabsPerBrowser);
+        this.permits = new Semaphore(maxSessions, true);
+    }
+
+    /**
+     * Leases a healthy browser session, launching a new one if no idle session is available.
+     * Blocks until a session frees up or the lease timeout expires.
+     */
+    public Lease lease() {
+        if (shutdown) {
+            throw new ScrapingException("WebDriver pool is shut down", null);
+        }
+        try {
+            if (!permits.tryAcquire(leaseTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new ScrapingException("Timed out waiting for a browser session", null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScrapingException("Interrupted while waiting for a browser session", e);
+        }
+
+        try {
+            PooledSession session;
+            while ((session = idleSessions.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                if (isHealthy(session)) {
+                    session.uses++;
+                    return new Lease(session);
+                }
+                log.warn("Discarding unhealthy browser session after {} uses", session.uses);
+                destroy(session);
+            }
+
+            session = createSession();
+            liveCount.incrementAndGet();
+            session.uses++;
+            log.info("Opened new browser session ({} live, {} browser processes)", liveCount.get(),
+                    getBrowserProcesses());
+            return new Lease(session);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(Lease lease) {
+        PooledSession session = lease.session;
+        try {
+            if (shutdown || lease.broken) {
+                destroy(session);
+            } else if (session.uses >= maxUsesPerSession) {
+                log.info("Recycling browser session after {} uses", session.uses);
+                destroy(session);
+            } else if (idleCount.incrementAndGet() > maxIdleSessions) {
+                idleCount.decrementAndGet();
+                destroy(session);
+            } else {
+                // The next lease starts with an empty performance log
+                networkRequestFilter.reset(session.driver);
+                // Most recently used first, so cold sessions age out via the idle limit
+                idleSessions.offerFirst(session);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isHealthy(PooledSession session) {
+        try {
+            // Cheap round trip that fails if chromedriver or the browser has died
+            session.driver.getWindowHandle();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private PooledSession createSession() {
+        if (tabsPerBrowser == 1) {
+            WebDriver driver = webDriverFactory.getObject();
+            networkRequestFilter.apply(driver);
+            return new PooledSession(driver, null);
+        }
+        synchronized (browsers) {
+            // Fill existing browsers before paying for another Chrome launch
+            MultiplexedBrowser host = browsers.stream()
+                    .filter(b -> b.getOpenTabs() < tabsPerBrowser)
+                    .findFirst()
+                    .orElse(null);
+            if (host == null) {
+                host = new MultiplexedBrowser(webDriverFactory.getObject());
+                browsers.add(host);
+            }
+            // Blocking rules are per target, so every tab gets its own
+            WebDriver tab = host.openTab();
+            networkRequestFilter.apply(tab);
+            return new PooledSession(tab, host);
+        }
+    }
+
+    private void destroy(PooledSession session) {
+        liveCount.decrementAndGet();
+        networkRequestFilter.forget(session.driver);
+        if (session.browser != null) {
+            synchronized (browsers) {
+                try {
+                    // Quitting a tab handle closes the tab; the process goes with its last tab
+                    session.driver.quit();
+                } catch (Exception e) {
+                    log.warn("Error closing pooled tab: {}", e.getMessage());
+                }
+                if (session.browser.isClosed()) {
+                    browsers.remove(session.browser);
+                }
+            }
+            return;
+        }
+        try {
+            session.driver.quit();
+        } catch (Exception e) {
+            log.warn("Error quitting pooled WebDriver: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        PooledSession session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            destroy(session);
+        }
+        for (MultiplexedBrowser browser : browsers) {
+            try {
+                browser.quit();
+            } catch (Exception e) {
+                log.warn("Error quitting multiplexed browser: {}", e.getMessage());
+            }
+        }
+        browsers.clear();
+        log.info("WebDriver pool shut down");
+    }
+
+    public int getLiveSessions() {
+        return liveCount.get();
+    }
+
+    public int getIdleSessions() {
+        return idleCount.get();
+    }
+
+    public int getLeasedSessions() {
+        return maxSessions - permits.availablePermits();
+    }
+
+    public int getBrowserProcesses() {
+        return tabsPerBrowser == 1 ? liveCount.get() : browsers.size();
+    }
+
+    private static final class PooledSession {
+        private final WebDriver driver;
+        // Hosting browser when the session is a tab, null for a dedicated browser
+        private final MultiplexedBrowser browser;
+        private int uses;
+
+        private PooledSession(WebDriver driver, MultiplexedBrowser browser) {
+            this.driver = driver;
+            this.browser = browser;
+        }
+    }
+
+    /**
+     * A browser session on loan from the pool. Close it (try-with-resources) to hand it back.
+     */
+    public final class Lease implements AutoCloseable {
+        private final PooledSession session;
+        private boolean broken = false;
+        private boolean closed = false;
+
+        private Lease(PooledSession session) {
+            this.session = session;
+        }
+
+        public WebDriver driver() {
+            return session.driver;
+        }
+
+        /**
+         * Marks the session as unusable so it is quit instead of returned to the pool.
+         */
+        public void invalidate() {
+            this.broken = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            release(this);
+        }
+    }
+}
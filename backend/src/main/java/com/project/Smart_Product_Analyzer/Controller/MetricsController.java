@@ -0,0 +1,106 @@
+package com.project.Smart_Product_Analyzer.Controller;
+
+import com.project.Smart_Product_Analyzer.Config.NetworkRequestFilter;
+import com.project.Smart_Product_Analyzer.Config.WebDriverPool;
+import com.project.Smart_Product_Analyzer.Service.AiService;
+import com.project.Smart_Product_Analyzer.Service.AmazonSearchPageScraper;
+import com.project.Smart_Product_Analyzer.Service.AmazonUrlCanonicalizer;
+import com.project.Smart_Product_Analyzer.Service.BatchAnalysisMerger;
+import com.project.Smart_Product_Analyzer.Service.HostCircuitBreaker;
+import com.project.Smart_Product_Analyzer.Service.LlmResponseCache;
+import com.project.Smart_Product_Analyzer.Service.PageSnapshotStore;
+import com.project.Smart_Product_Analyzer.Service.ProductService;
+import com.project.Smart_Product_Analyzer.Service.ReplayServer;
+import com.project.Smart_Product_Analyzer.Service.ReviewBatcher;
+import com.project.Smart_Product_Analyzer.Service.ScrapedProductCache;
+import com.project.Smart_Product_Analyzer.Service.RequestPacer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes runtime counters of the scraping pipeline so behaviour under load can be checked.
+ */
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    private final WebDriverPool webDriverPool;
+    private final AmazonSearchPageScraper searchPageScraper;
+    private final RequestPacer requestPacer;
+    private final HostCircuitBreaker circuitBreaker;
+    private final NetworkRequestFilter networkRequestFilter;
+    private final PageSnapshotStore snapshotStore;
+    private final ReplayServer replayServer;
+    private final ProductService productService;
+    private final ScrapedProductCache productCache;
+    private final AmazonUrlCanonicalizer urlCanonicalizer;
+    private final AiService aiService;
+    private final ReviewBatcher reviewBatcher;
+    private final LlmResponseCache llmResponseCache;
+    private final BatchAnalysisMerger batchMerger;
+
+    @Autowired
+    public MetricsController(WebDriverPool webDriverPool, AmazonSearchPageScraper searchPageScraper,
+            RequestPacer requestPacer, HostCircuitBreaker circuitBreaker,
+            NetworkRequestFilter networkRequestFilter, PageSnapshotStore snapshotStore,
+            ReplayServer replayServer, ProductService productService, ScrapedProductCache productCache,
+            AmazonUrlCanonicalizer urlCanonicalizer, AiService aiService, ReviewBatcher reviewBatcher,
+            LlmResponseCache llmResponseCache, BatchAnalysisMerger batchMerger) {
+        this.webDriverPool = webDriverPool;
+        this.searchPageScraper = searchPageScraper;
+        this.requestPacer = requestPacer;
+        this.circuitBreaker = circuitBreaker;
+        this.networkRequestFilter = networkRequestFilter;
+        this.snapshotStore = snapshotStore;
+        this.replayServer = replayServer;
+        this.productService = productService;
+        this.productCache = productCache;
+        this.urlCanonicalizer = urlCanonicalizer;
+        this.aiService = aiService;
+        this.reviewBatcher = reviewBatcher;
+        this.llmResponseCache = llmResponseCache;
+        this.batchMerger = batchMerger;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("liveSessions", webDriverPool.getLiveSessions());
+        pool.put("idleSessions", webDriverPool.getIdleSessions());
+        pool.put("leasedSessions", webDriverPool.getLeasedSessions());
+        pool.put("browserProcesses", webDriverPool.getBrowserProcesses());
+        metrics.put("browserPool", pool);
+
+        Map<String, Object> search = new LinkedHashMap<>();
+        search.put("inFlight", searchPageScraper.getInFlightSearches());
+        search.put("peakInFlight", searchPageScraper.getPeakInFlightSearches());
+        metrics.put("searchScraper", search);
+
+        metrics.put("pacing", requestPacer.getMetrics());
+        metrics.put("circuitBreakers", circuitBreaker.getMetrics());
+        metrics.put("requestBlocking", networkRequestFilter.getMetrics());
+
+        Map<String, Object> snapshots = new LinkedHashMap<>();
+        snapshots.put("enabled", snapshotStore.isEnabled());
+        snapshots.put("storedBytes", snapshotStore.getTotalBytes());
+        metrics.put("pageSnapshots", snapshots);
+        metrics.put("replay", replayServer.getMetrics());
+        metrics.put("analysis", productService.getMetrics());
+        metrics.put("productCache", productCache.getMetrics());
+        metrics.put("urlCanonicalizer", urlCanonicalizer.getMetrics());
+        metrics.put("llmBatches", aiService.getMetrics());
+        metrics.put("reviewBatching", reviewBatcher.getMetrics());
+        metrics.put("llmResponseCache", llmResponseCache.getMetrics());
+        metrics.put("batchMerge", batchMerger.getMetrics());
+
+        return ResponseEntity.ok(metrics);
+    }
+}
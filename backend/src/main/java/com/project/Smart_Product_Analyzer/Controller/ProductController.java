@@ -2,6 +2,7 @@ package com.project.Smart_Product_Analyzer.Controller;
 
 import com.project.Smart_Product_Analyzer.Model.Product;
 import com.project.Smart_Product_Analyzer.Model.ProductAnalysisRequest;
+import com.project.Smart_Product_Analyzer.Service.AmazonUrlCanonicalizer;
 import com.project.Smart_Product_Analyzer.Service.ProductService;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
@@ -27,10 +28,12 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService service;
+    private final AmazonUrlCanonicalizer urlCanonicalizer;
 
     @Autowired
-    public ProductController(ProductService service) {
+    public ProductController(ProductService service, AmazonUrlCanonicalizer urlCanonicalizer) {
         this.service = service;
+        this.urlCanonicalizer = urlCanonicalizer;
     }
 
     @GetMapping("health")
@@ -45,9 +48,10 @@ public class ProductController {
         try {
             List<Product> productResult;
             if (request.isUrl()) {
-                productResult = service.analyzeLink(request.getInput());
+                String link = urlCanonicalizer.canonicalize(request.getInput());
+                productResult = service.analyzeLink(link, request.getBudgetMs());
             } else
-                productResult = service.analyzeProduct(request.getInput());
+                productResult = service.analyzeProduct(request.getInput(), request.getBudgetMs());
             log.info("Analyzed Product with response size: {}", productResult.size());
             return ResponseEntity.ok(productResult);
         } catch (Exception e) {
@@ -66,7 +70,8 @@ public class ProductController {
         log.info("Product URL analysis request received: {}", request.getInput());
 
         try {
-            List<Product> result = service.analyzeLink(request.getInput());
+            String link = urlCanonicalizer.canonicalize(request.getInput());
+            List<Product> result = service.analyzeLink(link, request.getBudgetMs());
             log.info("Product URL analysis completed successfully, found: {}", result.size());
             return ResponseEntity.ok(result);
 
@@ -86,7 +91,7 @@ public class ProductController {
         log.info("Product description analysis request received: {}", request.getInput());
 
         try {
-            List<Product> result = service.analyzeProduct(request.getInput());
+            List<Product> result = service.analyzeProduct(request.getInput(), request.getBudgetMs());
             log.info("Product description analysis completed successfully, found: {}", result.size());
             return ResponseEntity.ok(result);
 
@@ -24,6 +24,12 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(exception.getMessage(),HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    @ExceptionHandler(ScraperBlockedException.class)
+    public ResponseEntity<String> scraperBlockedHandler(ScraperBlockedException exception) {
+        log.warn("Scraper blocked: {}", exception.getMessage());
+        return new ResponseEntity<>(exception.getMessage(),HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(AiServiceException.class)
     public ResponseEntity<String> aiServiceExceptionHandler(AiServiceException exception) {
         log.error("AI service error: {}", exception.getMessage());
@@ -0,0 +1,7 @@
+package com.project.Smart_Product_Analyzer.Exception;
+
+public class ScraperBlockedException extends RuntimeException {
+    public ScraperBlockedException(String message) {
+        super(message);
+    }
+}
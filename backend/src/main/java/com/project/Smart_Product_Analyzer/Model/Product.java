@@ -9,7 +9,7 @@ import jakarta.validation.constraints.DecimalMin;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -39,6 +39,9 @@ public class Product {
 
     private boolean recommended;
 
+    // Set when the request's latency budget ran out before the analysis finished
+    private boolean partial;
+
     // Helper methods
     public boolean isValid() {
         boolean hasName = name != null && !name.trim().isEmpty();
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
 @Data
@@ -16,6 +17,10 @@ public class ProductAnalysisRequest {
     private String input;
     private String type;
 
+    // Optional latency budget: past it, the products analyzed so far are returned as partial
+    @Positive(message = "Budget must be positive")
+    private Long budgetMs;
+
     public boolean isUrl() {
         return (input != null && input.startsWith("https"));
     }
@@ -1,26 +1,80 @@
 package com.project.Smart_Product_Analyzer.Service;
 
 import com.project.Smart_Product_Analyzer.Config.PromptLoader;
+import com.project.Smart_Product_Analyzer.Config.PromptTemplate;
+import com.project.Smart_Product_Analyzer.Exception.AiServiceException;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+@Slf4j
 @Service
 public class AiService {
 
+    // Models pinned per prompt; everything else uses the configured default
+    private static final String SEARCH_URL_MODEL = "accounts/fireworks/models/gpt-oss-120b";
+    private static final String KEYWORD_MODEL = "accounts/fireworks/models/gpt-oss-20b";
+
     private final ChatClient chatClient;
     private final PromptLoader promptLoader;
+    private final LlmResponseCache responseCache;
+    private final BatchAnalysisMerger batchMerger;
+    private final boolean fastMerge;
+    private final String defaultModel;
+    private final ReviewBatcher reviewBatcher;
+    private final ThreadPoolTaskExecutor llmExecutor;
+    private final long batchTimeoutMs;
+
+    // Batch fan-out: wall time of whole analyses vs. summed time of their batches shows how
+    // many batches really ran at once
+    private final ThroughputStats batchStats = new ThroughputStats();
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+    private final AtomicInteger peakInFlightBatches = new AtomicInteger();
+    private final LongAdder timedOutBatches = new LongAdder();
+    private final LongAdder rejectedBatches = new LongAdder();
+    private final LongAdder batchNanos = new LongAdder();
+    private final LongAdder fanOutNanos = new LongAdder();
+    private final LongAdder llmVerdicts = new LongAdder();
+    private final LongAdder localVerdicts = new LongAdder();
 
     @Autowired
-    public AiService(ChatClient.Builder chatClientBuilder, PromptLoader promptLoader) {
+    public AiService(ChatClient.Builder chatClientBuilder, PromptLoader promptLoader,
+            ReviewBatcher reviewBatcher, @Qualifier("llmExecutor") ThreadPoolTaskExecutor llmExecutor,
+            @Value("${ai.batch.timeout-ms:60000}") long batchTimeoutMs, LlmResponseCache responseCache,
+            @Value("${spring.ai.openai.chat.options.model:default}") String defaultModel,
+            BatchAnalysisMerger batchMerger, @Value("${ai.merge.mode:llm}") String mergeMode) {
         this.chatClient = chatClientBuilder.build();
         this.promptLoader = promptLoader;
+        this.responseCache = responseCache;
+        this.defaultModel = defaultModel;
+        this.batchMerger = batchMerger;
+        // "fast" skips the verdict call as well; anything else asks the model for the verdict
+        this.fastMerge = "fast".equalsIgnoreCase(mergeMode);
+        this.reviewBatcher = reviewBatcher;
+        this.llmExecutor = llmExecutor;
+        this.batchTimeoutMs = batchTimeoutMs;
     }
 
     /**
@@ -35,104 +89,239 @@ public class AiService {
         if (allReviews.isEmpty())
             return "No reviews to analyze.";
 
-        // Split into batches of 5
-        List<List<String>> batches = chunkList(allReviews, 5);
-        System.out.println("Split " + allReviews.size() + " reviews into " + batches.size() + " batches.");
+        return getProductAnalysisResponse(List.of(CompletableFuture.completedFuture(allReviews)));
+    }
 
-        // Fire off async requests
-        List<CompletableFuture<String>> futures = batches.stream()
-                .map(this::analyzeBatch)
+    /**
+     * Analyzes reviews that arrive over time, one future per page of reviews. Each page is packed
+     * into batches by token budget ({@link ReviewBatcher}) that all go to the LLM pool as soon as
+     * the page completes, so batches run side by side and the first ones are already with the
+     * model while later pages still load.
+     */
+    public String getProductAnalysisResponse(List<CompletableFuture<List<String>>> reviewPages) {
+        CancellationScope scope = CancellationScope.current();
+        long start = System.nanoTime();
+        AtomicInteger fixedBatchCount = new AtomicInteger();
+        AtomicInteger batchCount = new AtomicInteger();
+        List<CompletableFuture<List<CompletableFuture<BatchAnalysisMerger.BatchResult>>>> pageBatches = reviewPages.stream()
+                .map(page -> page
+                        .thenApply(reviews -> {
+                            List<List<String>> batches = reviewBatcher.pack(reviews);
+                            fixedBatchCount.addAndGet(reviewBatcher.fixedBatchCount(reviews.size()));
+                            batchCount.addAndGet(batches.size());
+                            return batches;
+                        })
+                        .thenApply(batches -> batches.stream()
+                                // No new batches once the request's latency budget is spent
+                                .takeWhile(batch -> !scope.isOverBudget())
+                                .map(batch -> analyzeBatch(batch)
+                                        .thenApply(summary -> new BatchAnalysisMerger.BatchResult(summary, batch.size())))
+                                .toList())
+                        .exceptionally(e -> {
+                            if (scope.isCancelled())
+                                throw new CancellationException("Analysis cancelled");
+                            return List.of();
+                        }))
                 .toList();
 
-        // Wait for all to complete and join results
-        List<String> batchSummaries = futures.stream()
-                .map(CompletableFuture::join)
+        // Wait for every batch (or until the deadline), keeping summaries in page order. Failed
+        // and timed out batches are left out rather than handed to the aggregation
+        List<BatchAnalysisMerger.BatchResult> batchSummaries = pageBatches.stream()
+                .map(page -> awaitWithinBudget(page, scope,
+                        List.<CompletableFuture<BatchAnalysisMerger.BatchResult>>of()))
+                .flatMap(List::stream)
+                .map(batch -> awaitWithinBudget(batch.exceptionally(e -> {
+                    if (scope.isCancelled())
+                        throw new CancellationException("Analysis cancelled");
+                    return null;
+                }), scope, null))
+                .filter(Objects::nonNull)
                 .toList();
+        fanOutNanos.add(System.nanoTime() - start);
+        log.debug("Analyzed {} review pages in {} batches, {} calls saved over batches of {}", reviewPages.size(),
+                batchSummaries.size(), fixedBatchCount.get() - batchCount.get(), ReviewBatcher.FIXED_BATCH_SIZE);
+
+        if (batchSummaries.isEmpty())
+            return "No reviews to analyze.";
 
         // Final step: Aggregate the batch summaries into one final analysis
         // If there's only one batch, return it directly
         if (batchSummaries.size() == 1) {
-            return batchSummaries.get(0);
+            return batchSummaries.get(0).summary();
         }
 
-        // Otherwise, ask AI to combine them
+        // Otherwise merge them locally
         return aggregateSummaries(batchSummaries);
     }
 
-    @Async("taskExecutor")
-    public CompletableFuture<String> analyzeBatch(List<String> reviewsBatch) {
+    private <T> T awaitWithinBudget(CompletableFuture<T> future, CancellationScope scope, T fallback) {
+        long remaining = scope.remainingMillis();
+        if (remaining == Long.MAX_VALUE)
+            return future.join();
         try {
-            String combinedReviews = String.join("\n", reviewsBatch);
-            String prompt = promptLoader.loadPromptFile("productAnalyzer.txt");
-            String fullPrompt = prompt.replace("{reviews}", combinedReviews);
+            return future.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            scope.markOverBudget();
+            return fallback;
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for review batches");
+        }
+    }
 
-            String response = chatClient.prompt()
-                    .user(fullPrompt)
-                    .call()
-                    .content();
+    /**
+     * Sends one batch of reviews to the model on the LLM pool. The future fails if the call fails,
+     * the pool is full, or the call takes longer than ai.batch.timeout-ms once it has started, in
+     * which case the call is interrupted.
+     */
+    public CompletableFuture<String> analyzeBatch(List<String> reviewsBatch) {
+        // A cached batch doesn't need to queue behind real model calls
+        PromptTemplate template = promptLoader.template("productAnalyzer.txt");
+        Map<String, ?> values = Map.of("reviews", reviewsBatch);
+        LlmResponseCache.Lookup cached = responseCache.lookup(defaultModel, template, values);
+        if (cached.hit())
+            return CompletableFuture.completedFuture(cached.response());
 
-            return CompletableFuture.completedFuture(response);
-        } catch (Exception e) {
-            System.err.println("Error in batch analysis: " + e.getMessage());
-            return CompletableFuture.completedFuture("Error analyzing batch: " + e.getMessage());
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Future<?> call;
+        try {
+            call = llmExecutor.submit(() -> {
+                // Timed from here, so batches queued behind others don't time out before they run
+                result.orTimeout(batchTimeoutMs, TimeUnit.MILLISECONDS);
+                long start = System.nanoTime();
+                peakInFlightBatches.accumulateAndGet(inFlightBatches.incrementAndGet(), Math::max);
+                boolean success = false;
+                try {
+                    result.complete(callModel(template, values, cached));
+                    success = true;
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    inFlightBatches.decrementAndGet();
+                    batchNanos.add(System.nanoTime() - start);
+                    batchStats.record(start, success);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            rejectedBatches.increment();
+            return CompletableFuture.failedFuture(e);
         }
+        return result.whenComplete((response, e) -> {
+            if (e instanceof TimeoutException) {
+                timedOutBatches.increment();
+                log.warn("Batch analysis timed out after {} ms", batchTimeoutMs);
+                call.cancel(true);
+            }
+        });
     }
 
-    private String aggregateSummaries(List<String> summaries) {
-        try {
-            String combinedSummaries = String.join("\n\n=== NEXT BATCH ===\n\n", summaries);
-            // We use a simpler prompt for aggregation
-            String aggregationPrompt = "Here are multiple partial analyses of a product based on different review batches. "
-                    +
-                    "Please combine them into one consistent, final analysis following the same PROS, CONS, VERDICT, RATING format:\n\n"
-                    +
-                    combinedSummaries;
-
-            return chatClient.prompt()
-                    .user(aggregationPrompt)
-                    .call()
-                    .content();
+    private String callModel(PromptTemplate template, Map<String, ?> values, LlmResponseCache.Lookup cached) {
+        CancellationScope scope = CancellationScope.current();
+        scope.throwIfCancelled();
+        // Cancelling the analysis interrupts the pending model call
+        try (CancellationScope.Registration ignored = scope.interruptOnCancel()) {
+            return complete(template, null, values, cached);
         } catch (Exception e) {
-            System.err.println("Error aggregating summaries: " + e.getMessage());
-            return summaries.get(0); // Fallback to first batch
+            if (scope.isCancelled()) {
+                Thread.interrupted();
+                throw new CancellationException("Analysis cancelled");
+            }
+            log.warn("Error in batch analysis: {}", e.getMessage());
+            throw new AiServiceException("Error analyzing batch: " + e.getMessage());
         }
     }
 
-    // Helper to chunk the list
-    private <T> List<List<T>> chunkList(List<T> list, int chunkSize) {
-        List<List<T>> chunks = new ArrayList<>();
-        for (int i = 0; i < list.size(); i += chunkSize) {
-            chunks.add(list.subList(i, Math.min(i + chunkSize, list.size())));
+    /**
+     * Renders a prompt template and sends it to {@code model} (null for the default model),
+     * answering from the response cache when the same prompt was sent before.
+     */
+    private String complete(String templateName, String model, Map<String, ?> values) {
+        PromptTemplate template = promptLoader.template(templateName);
+        return complete(template, model, values,
+                responseCache.lookup(model != null ? model : defaultModel, template, values));
+    }
+
+    // Takes the lookup already made for this prompt, so a miss is not looked up again
+    private String complete(PromptTemplate template, String model, Map<String, ?> values,
+            LlmResponseCache.Lookup cached) {
+        return responseCache.getOrCompute(cached, () -> {
+            var request = chatClient.prompt().user(template.render(values));
+            if (model != null) {
+                request = request.options(OpenAiChatOptions.builder().withModel(model).build());
+            }
+            return request.call().content();
+        });
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>(batchStats.getMetrics());
+        metrics.put("inFlight", inFlightBatches.get());
+        metrics.put("peakInFlight", peakInFlightBatches.get());
+        metrics.put("concurrencyLimit", llmExecutor.getMaxPoolSize());
+        metrics.put("queued", llmExecutor.getThreadPoolExecutor().getQueue().size());
+        metrics.put("timedOut", timedOutBatches.sum());
+        metrics.put("rejected", rejectedBatches.sum());
+        long wall = fanOutNanos.sum();
+        // Average number of batches running at once while an analysis waited on them
+        metrics.put("effectiveParallelism", wall == 0 ? 0.0 : (double) batchNanos.sum() / wall);
+        metrics.put("llmVerdicts", llmVerdicts.sum());
+        metrics.put("localVerdicts", localVerdicts.sum());
+        return metrics;
+    }
+
+    /**
+     * Combines several batch analyses locally (see {@link BatchAnalysisMerger}). The model is
+     * only asked for the one-line verdict, and not at all in fast mode or past the deadline.
+     */
+    private String aggregateSummaries(List<BatchAnalysisMerger.BatchResult> batches) {
+        CancellationScope scope = CancellationScope.current();
+        scope.throwIfCancelled();
+        BatchAnalysisMerger.MergedAnalysis merged = batchMerger.merge(batches);
+        if (merged == null) {
+            log.warn("No batch analysis could be parsed, using the first one");
+            return batches.get(0).summary();
+        }
+        if (fastMerge || scope.isOverBudget()) {
+            localVerdicts.increment();
+            return merged.format(merged.verdict());
+        }
+        try {
+            String verdict = complete("verdictPrompt.txt", null, Map.of(
+                    "pros", merged.pros(),
+                    "cons", merged.cons(),
+                    "rating", merged.rating() != null ? String.format(Locale.ROOT, "%.2f", merged.rating()) : "unknown"));
+            if (verdict == null || verdict.isBlank()) {
+                localVerdicts.increment();
+                return merged.format(merged.verdict());
+            }
+            llmVerdicts.increment();
+            // One line only, whatever the model added
+            return merged.format(verdict.strip().lines().findFirst().orElse(merged.verdict()));
+        } catch (Exception e) {
+            if (scope.isCancelled())
+                throw new CancellationException("Analysis cancelled");
+            log.warn("Error generating verdict: {}", e.getMessage());
+            localVerdicts.increment();
+            return merged.format(merged.verdict());
         }
-        return chunks;
     }
 
     public String getSearchQueryResponse(String query) {
         try {
-            String prompt = promptLoader.loadPromptFile("searchQueryPrompt.txt").replace("{query}", query);
-            return chatClient.prompt()
-                    .user(prompt)
-                    .call()
-                    .content();
+            return complete("searchQueryPrompt.txt", null, Map.of("query", query));
         } catch (Exception e) {
             throw new RuntimeException("File Handling Error..");
         }
     }
 
     public List<String> generateSearchUrls(String description) {
+        CancellationScope.current().throwIfCancelled();
         try {
-            String promptTemplate = promptLoader.loadPromptFile("searchUrlPrompt.txt");
-            String prompt = promptTemplate.replace("{description}", description);
+            String response = complete("searchUrlPrompt.txt", SEARCH_URL_MODEL, Map.of("description", description));
 
-            String response = chatClient.prompt()
-                    .user(prompt)
-                    .options(OpenAiChatOptions.builder()
-                            .withModel("accounts/fireworks/models/gpt-oss-120b")
-                            .build())
-                    .call()
-                    .content();
-
-            System.out.println("Generated Search URLs: " + response);
+            log.debug("Generated Search URLs: {}", response);
 
             if (response == null || response.trim().isEmpty()) {
                 return new ArrayList<>();
@@ -145,31 +334,23 @@ public class AiService {
                     .toList();
 
         } catch (Exception e) {
-            System.err.println("Error generating search URLs: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Error generating search URLs: ", e);
             return new ArrayList<>();
         }
     }
 
     public String extractProductKeyword(String productTitle) {
+        CancellationScope.current().throwIfCancelled();
         try {
-            String promptTemplate = promptLoader.loadPromptFile("keywordExtractionPrompt.txt");
-            String prompt = promptTemplate.replace("{productTitle}", productTitle);
-
-            String response = chatClient.prompt()
-                    .user(prompt)
-                    .options(OpenAiChatOptions.builder()
-                            .withModel("accounts/fireworks/models/gpt-oss-20b") // User requested specific model
-                            .build())
-                    .call()
-                    .content();
+            String response = complete("keywordExtractionPrompt.txt", KEYWORD_MODEL,
+                    Map.of("productTitle", productTitle));
 
             if (response != null) {
                 return response.trim();
             }
             return "";
         } catch (Exception e) {
-            System.err.println("Error extracting product keyword: " + e.getMessage());
+            log.warn("Error extracting product keyword: {}", e.getMessage());
             return productTitle; // Fallback to full title
         }
     }
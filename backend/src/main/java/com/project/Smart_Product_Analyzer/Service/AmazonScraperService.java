@@ -1,93 +1,328 @@
 package com.project.Smart_Product_Analyzer.Service;
 
+import com.project.Smart_Product_Analyzer.Config.NetworkRequestFilter;
+import com.project.Smart_Product_Analyzer.Config.PageScripts;
+import com.project.Smart_Product_Analyzer.Config.WebDriverPool;
 import com.project.Smart_Product_Analyzer.Exception.ProductNotFound;
+import com.project.Smart_Product_Analyzer.Exception.ScraperBlockedException;
 import com.project.Smart_Product_Analyzer.Exception.ScrapingException;
 import com.project.Smart_Product_Analyzer.Model.Product;
 import jakarta.validation.constraints.NotBlank;
 import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.WebDriverWait;
-import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.net.URI;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 
 @Slf4j
 @Service
 public class AmazonScraperService {
 
-    private final ObjectFactory<WebDriver> webDriverFactory;
+    // Upper bound on review candidates returned per selector by the extraction script
+    private static final int SCRIPT_MAX_REVIEW_CANDIDATES = 50;
+
+    private final WebDriverPool webDriverPool;
+    private final HttpPageFetcher httpPageFetcher;
+    private final PageScripts pageScripts;
+    private final PageReadiness pageReadiness;
+    private final RequestPacer requestPacer;
+    private final BlockDetector blockDetector;
+    private final HostCircuitBreaker circuitBreaker;
+    private final NetworkRequestFilter networkRequestFilter;
+    private final PageSnapshotStore snapshotStore;
+    private final ReplayServer replayServer;
+    private final ScrapedProductCache productCache;
 
     @Autowired
-    public AmazonScraperService(ObjectFactory<WebDriver> webDriverFactory) {
-        this.webDriverFactory = webDriverFactory;
+    public AmazonScraperService(WebDriverPool webDriverPool, HttpPageFetcher httpPageFetcher,
+            PageScripts pageScripts, PageReadiness pageReadiness, RequestPacer requestPacer,
+            BlockDetector blockDetector, HostCircuitBreaker circuitBreaker,
+            NetworkRequestFilter networkRequestFilter, PageSnapshotStore snapshotStore,
+            ReplayServer replayServer, ScrapedProductCache productCache) {
+        this.webDriverPool = webDriverPool;
+        this.httpPageFetcher = httpPageFetcher;
+        this.pageScripts = pageScripts;
+        this.pageReadiness = pageReadiness;
+        this.requestPacer = requestPacer;
+        this.blockDetector = blockDetector;
+        this.circuitBreaker = circuitBreaker;
+        this.networkRequestFilter = networkRequestFilter;
+        this.snapshotStore = snapshotStore;
+        this.replayServer = replayServer;
+        this.productCache = productCache;
     }
 
     public Product scrapeAmazonOnUrl(String url) {
+        CancellationScope.current().throwIfCancelled();
         log.info("Starting to scrape product from URL: {}", url);
 
-        WebDriver webDriver = null;
-        try {
-            webDriver = webDriverFactory.getObject();
-
-            Product product = Product.builder()
-                    .url(url)
-                    .build();
-
-            // Navigate to the URL first
-            webDriver.get(url);
-            log.info("Navigated to URL: {}", url);
-
-            // Random Sleep to mimic human behavior (2s - 4s)
-            try {
-                long sleepTime = 2000 + (long) (Math.random() * 2000);
-                Thread.sleep(sleepTime);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        // Same ASIN scraped recently (as main, similar or candidate product): reuse it
+        ScrapedProductCache.Lookup cached = productCache.get(url);
+        if (cached != null && (cached.priceFresh() || refreshPrice(url, cached.product()))) {
+            log.info("Using cached scrape of product : {}", cached.product().getName());
+            cached.product().setUrl(url);
+            return cached.product();
+        }
+
+        Product product = scrapeProductPage(url);
+        productCache.put(url, product);
+        return product;
+    }
+
+    private Product scrapeProductPage(String url) {
+        // Fail fast while Amazon is known to be blocking us. If this is the half-open probe and it
+        // ends without a verdict (driver error, timeout, cancellation), closing hands it back
+        try (HostCircuitBreaker.Probe ignored = circuitBreaker.checkAllowed(URI.create(url).getHost())) {
+            // Fast path: plain HTTP + HTML parse, Selenium only if that comes back incomplete
+            Product fetched = scrapeOverHttp(url);
+            if (fetched != null) {
+                log.info("Successfully Scraped Product over HTTP : {}", fetched.getName());
+                return fetched;
+            }
+            return scrapeWithBrowser(url);
+        }
+    }
+
+    private Product scrapeWithBrowser(String url) {
+        // Lease a warm browser from the pool instead of launching one per product, once our pacing
+        // slot has started so no lease sits idle. Cancelling the analysis interrupts the pacing
+        // wait, the wait for a lease or the page load, and the lease goes back
+        try (CancellationScope.Registration ignored = CancellationScope.current().interruptOnCancel()) {
+            requestPacer.await(URI.create(url).getHost());
+            try (WebDriverPool.Lease lease = webDriverPool.lease()) {
+                WebDriver webDriver = lease.driver();
+                try {
+                    return scrapeWithDriver(webDriver, url);
+                } catch (WebDriverException e) {
+                    // Driver-level failure: don't hand a possibly dead session back to the pool
+                    lease.invalidate();
+                    throw e;
+                }
+            }
+        } catch (ScraperBlockedException e) {
+            throw e;
+        } catch (Exception e) {
+            if (CancellationScope.current().isCancelled()) {
+                // Clear the interrupt meant for this scrape before the thread goes back to its pool
+                Thread.interrupted();
+                throw new CancellationException("Scrape of " + url + " cancelled");
             }
+            log.error("Error in scraping product", e);
+            throw new ScrapingException("Error in Scraping product", e);
+        }
+    }
+
+    /**
+     * Re-reads only the price of a cached product over plain HTTP. Returns false if that did not
+     * work, in which case the whole page is scraped again.
+     */
+    private boolean refreshPrice(String url, Product product) {
+        if (!httpPageFetcher.isEnabled())
+            return false;
+        Document document = httpPageFetcher.fetch(url);
+        if (document == null || blockDetector.isBlocked(document))
+            return false;
+        String price = firstText(document, AmazonSelectors.PRODUCT_PRICE);
+        if (price == null)
+            return false;
+        product.setPrice(price);
+        productCache.updatePrice(url, price);
+        log.debug("Refreshed cached price of {}: {}", url, price);
+        return true;
+    }
+
+    private Product scrapeWithDriver(WebDriver webDriver, String url) {
+        Product product = Product.builder()
+                .url(url)
+                .build();
 
-            WebDriverWait wait = new WebDriverWait(webDriver, Duration.ofSeconds(10));
-            product.setName(extractProductName(webDriver, wait));
+        // Pacing slot already taken by the caller: navigate and wait only as long as the page needs
+        String host = URI.create(url).getHost();
+        webDriver.get(replayServer.route(url));
+        log.info("Navigated to URL: {}", url);
+        pageReadiness.await(webDriver, PageReadiness.PageType.PRODUCT);
+
+        if (blockDetector.isBlocked(webDriver)) {
+            circuitBreaker.recordBlocked(host);
+            throw new ScraperBlockedException("CAPTCHA page served for " + url);
+        }
+        circuitBreaker.recordSuccess(host);
+        if (snapshotStore.isRecording()) {
+            snapshotStore.save(url, webDriver.getPageSource());
+        }
 
-            product.setPrice(extractProductPrice(webDriver, wait));
-            product.setImageUrl(extractProductImage(webDriver, wait));
+        NetworkRequestFilter.PageStats network = networkRequestFilter.collectStats(webDriver);
+        log.debug("Page {}: blocked {} requests {}, loaded {} requests ({} bytes)", url,
+                network.blockedRequests(), network.blockedByType(), network.loadedRequests(), network.loadedBytes());
 
-            List<String> reviews = extractProductReviews(webDriver, wait);
-            product.setPros(reviews);
+        // One script evaluation for every field; per-element lookups only if the script fails
+        if (extractWithScript(webDriver, product)) {
             log.info("Successfully Scraped Product : {}", product.getName());
             return product;
+        }
 
-        } catch (Exception e) {
-            log.error("Error in scraping product", e);
-            throw new ScrapingException("Error in Scraping product", e);
-        } finally {
-            if (webDriver != null) {
-                try {
-                    webDriver.quit();
-                } catch (Exception e) {
-                    log.error("Error quitting WebDriver", e);
-                }
+        WebDriverWait wait = new WebDriverWait(webDriver, Duration.ofSeconds(10));
+        product.setName(extractProductName(webDriver, wait));
+
+        product.setPrice(extractProductPrice(webDriver, wait));
+        product.setImageUrl(extractProductImage(webDriver, wait));
+
+        List<String> reviews = extractProductReviews(webDriver, wait);
+        product.setPros(reviews);
+        log.info("Successfully Scraped Product : {}", product.getName());
+        return product;
+    }
+
+    /**
+     * Runs the same selector lists against server-rendered HTML. Returns null when the page is a
+     * bot wall or the fields we need (name and reviews) are missing, signalling a Selenium fallback.
+     */
+    private Product scrapeOverHttp(String url) {
+        if (!httpPageFetcher.isEnabled())
+            return null;
+
+        Document document = httpPageFetcher.fetch(url);
+        if (document == null)
+            return null;
+        if (blockDetector.isBlocked(document)) {
+            // Not fed to the circuit breaker: the bare HTTP client is walled far more often than
+            // a real browser, so this says little about whether the browser path will get through.
+            // The browser fallback reports the outcome instead
+            log.warn("Bot wall on HTTP fetch of {}, falling back to browser", url);
+            return null;
+        }
+        // A real page came back, so Amazon is not walling this host
+        circuitBreaker.recordSuccess(URI.create(url).getHost());
+        return extractFromHtml(document, url);
+    }
+
+    /**
+     * Runs extraction again over the last stored snapshot of a product page, without touching
+     * Amazon. Useful after selector changes.
+     */
+    public Product reparseSnapshot(String url) {
+        PageSnapshotStore.Snapshot snapshot = snapshotStore.latest(url)
+                .orElseThrow(() -> new ProductNotFound("No stored snapshot for " + url));
+        Product product = extractFromHtml(Jsoup.parse(snapshot.html(), snapshot.url()), snapshot.url());
+        if (product == null) {
+            throw new ProductNotFound("Snapshot from " + snapshot.fetchedAt() + " has no product data");
+        }
+        return product;
+    }
+
+    Product extractFromHtml(Document document, String url) {
+        String name = firstText(document, AmazonSelectors.PRODUCT_NAME);
+        if (name == null) {
+            log.debug("No product name in HTML for {}", url);
+            return null;
+        }
+
+        List<List<String>> reviewCandidates = new ArrayList<>();
+        for (String selector : AmazonSelectors.REVIEW_BODY) {
+            reviewCandidates.add(document.select(selector).eachText());
+        }
+        List<String> reviews = AmazonSelectors.pickReviews(reviewCandidates);
+        if (reviews.isEmpty()) {
+            log.debug("No reviews in HTML for {}", url);
+            return null;
+        }
+
+        String price = firstText(document, AmazonSelectors.PRODUCT_PRICE);
+        String imageUrl = null;
+        for (String selector : AmazonSelectors.PRODUCT_IMAGE) {
+            Element image = document.selectFirst(selector);
+            if (image != null && !image.attr("src").isEmpty()) {
+                imageUrl = image.attr("src");
+                break;
+            }
+        }
+
+        return Product.builder()
+                .url(url)
+                .name(name)
+                .price(price != null ? price : "N/A")
+                .imageUrl(imageUrl != null ? imageUrl : AmazonSelectors.NO_IMAGE_URL)
+                .pros(reviews)
+                .build();
+    }
+
+    private String firstText(Document document, String[] selectors) {
+        for (String selector : selectors) {
+            Elements elements = document.select(selector);
+            if (!elements.isEmpty()) {
+                String text = elements.get(0).text().trim();
+                if (!text.isEmpty())
+                    return text;
             }
         }
+        return null;
+    }
+
+    /**
+     * Evaluates all selector lists inside the page in a single executeScript call and maps the
+     * JSON payload into the product. Returns false if the script could not run, so the caller can
+     * use the per-element path instead.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean extractWithScript(WebDriver webDriver, Product product) {
+        Map<String, Object> payload;
+        try {
+            payload = (Map<String, Object>) ((JavascriptExecutor) webDriver).executeScript(
+                    pageScripts.get("extractProduct.js"),
+                    Arrays.asList(AmazonSelectors.PRODUCT_NAME),
+                    Arrays.asList(AmazonSelectors.PRODUCT_PRICE),
+                    Arrays.asList(AmazonSelectors.PRODUCT_IMAGE),
+                    Arrays.asList(AmazonSelectors.REVIEW_BODY),
+                    SCRIPT_MAX_REVIEW_CANDIDATES);
+        } catch (Exception e) {
+            log.warn("Extraction script failed, falling back to per-element lookups: {}", e.getMessage());
+            return false;
+        }
+        if (payload == null)
+            return false;
+
+        String name = (String) payload.get("name");
+        if (name == null || name.isEmpty()) {
+            log.error("All name selectors failed");
+            throw new ProductNotFound("Product Name not found");
+        }
+        product.setName(name);
+        log.info("Got product Name: {}", name);
+
+        String price = (String) payload.get("price");
+        product.setPrice(price != null ? price : "N/A");
+
+        String image = (String) payload.get("image");
+        product.setImageUrl(image != null ? image : AmazonSelectors.NO_IMAGE_URL);
+
+        List<String> reviews = AmazonSelectors.pickReviews(
+                (List<List<String>>) payload.getOrDefault("reviews", List.of()));
+        if (reviews.isEmpty()) {
+            log.warn("No reviews found for product");
+            reviews = Collections.singletonList("No reviews available for this product.");
+        } else {
+            log.info("Found {} reviews", reviews.size());
+        }
+        product.setPros(reviews);
+        return true;
     }
 
     private String extractProductPrice(WebDriver webDriver, WebDriverWait wait) {
         try {
-            // Robust price selectors
-            String[] priceSelectors = {
-                    "#corePrice_feature_div .a-price .a-offscreen",
-                    "#corePriceDisplay_desktop_feature_div .a-price .a-offscreen",
-                    ".a-price .a-offscreen",
-                    "#priceblock_ourprice",
-                    "#priceblock_dealprice",
-                    ".a-price-whole" // Fallback to just the whole number part
-            };
-
-            for (String selector : priceSelectors) {
+            for (String selector : AmazonSelectors.PRODUCT_PRICE) {
                 try {
                     List<WebElement> elements = webDriver.findElements(By.cssSelector(selector));
                     if (!elements.isEmpty()) {
@@ -139,15 +374,7 @@ public class AmazonScraperService {
     private void extractReviewsSimple(WebDriver webDriver, WebDriverWait wait, Set<String> reviews) {
         log.info("Extracing reviews...");
         try {
-            // Selectors for review bodies
-            String[] reviewSelectors = {
-                    "div[data-hook='review-collapsed']",
-                    "span[data-hook='review-body'] span",
-                    ".review-text-content span",
-                    "#feature-bullets li span.a-list-item" // Fallback to features if no reviews
-            };
-
-            for (String selector : reviewSelectors) {
+            for (String selector : AmazonSelectors.REVIEW_BODY) {
                 try {
                     List<WebElement> elements = webDriver.findElements(By.cssSelector(selector));
                     if (!elements.isEmpty()) {
@@ -157,9 +384,9 @@ public class AmazonScraperService {
                             if (text == null || text.isEmpty())
                                 text = element.getText();
 
-                            if (isValidReview(text)) {
+                            if (AmazonSelectors.isValidReview(text)) {
                                 reviews.add(text.trim());
-                                if (reviews.size() >= 10)
+                                if (reviews.size() >= AmazonSelectors.MAX_REVIEWS)
                                     return; // Limit to 10 reviews
                             }
                         }
@@ -175,35 +402,10 @@ public class AmazonScraperService {
         }
     }
 
-    private boolean isValidReview(String text) {
-        if (text == null)
-            return false;
-        String t = text.trim();
-        return t.length() > 20 && // Increase min length
-                !t.contains("Verified Purchase") &&
-                !t.contains("Helpful") &&
-                !t.contains("Report") &&
-                !t.contains("stars") &&
-                !t.contains("out of 5") &&
-                !t.contains("customer reviews") &&
-                !t.contains("See all") &&
-                !t.contains("Write a review");
-
-    }
-
     private @NotBlank(message = "Product name is required") String extractProductName(WebDriver webDriver,
             WebDriverWait wait) {
         try {
-            // Robust product name selectors
-            String[] nameSelectors = {
-                    "#productTitle",
-                    "#title",
-                    "h1#title",
-                    "#feature-title",
-                    ".product-title-word-break"
-            };
-
-            for (String selector : nameSelectors) {
+            for (String selector : AmazonSelectors.PRODUCT_NAME) {
                 try {
                     List<WebElement> elements = webDriver.findElements(By.cssSelector(selector));
                     if (!elements.isEmpty()) {
@@ -231,15 +433,7 @@ public class AmazonScraperService {
 
     private String extractProductImage(WebDriver webDriver, WebDriverWait wait) {
         try {
-            String[] imageSelectors = {
-                    "#landingImage",
-                    "#imgTagWrapperId img",
-                    "#main-image",
-                    ".a-dynamic-image",
-                    "img[data-a-image-name='landingImage']"
-            };
-
-            for (String selector : imageSelectors) {
+            for (String selector : AmazonSelectors.PRODUCT_IMAGE) {
                 try {
                     List<WebElement> elements = webDriver.findElements(By.cssSelector(selector));
                     if (!elements.isEmpty()) {
@@ -252,7 +446,7 @@ public class AmazonScraperService {
                     log.debug("Image selector {} failed", selector);
                 }
             }
-            return "https://via.placeholder.com/300?text=No+Image"; // Fallback image
+            return AmazonSelectors.NO_IMAGE_URL; // Fallback image
         } catch (Exception e) {
             log.warn("Failed to extract product image", e);
             return null;
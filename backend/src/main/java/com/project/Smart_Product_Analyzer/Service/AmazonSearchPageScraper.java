@@ -1,70 +1,284 @@
 package com.project.Smart_Product_Analyzer.Service;
 
+import com.project.Smart_Product_Analyzer.Config.NetworkRequestFilter;
+import com.project.Smart_Product_Analyzer.Config.PageScripts;
+import com.project.Smart_Product_Analyzer.Config.WebDriverPool;
 import com.project.Smart_Product_Analyzer.Exception.InvalidUrlException;
 import com.project.Smart_Product_Analyzer.Exception.ProductNotFound;
+import com.project.Smart_Product_Analyzer.Exception.ScraperBlockedException;
 import com.project.Smart_Product_Analyzer.Exception.ScrapingException;
 import com.project.Smart_Product_Analyzer.Model.Product;
 import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.springframework.stereotype.Service;
 
+import java.net.URI;
 import java.net.URL;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class AmazonSearchPageScraper {
 
-    private final WebDriver driver;
-
-    public AmazonSearchPageScraper(WebDriver driver) {
-        this.driver = driver;
+    private final WebDriverPool webDriverPool;
+    private final HttpPageFetcher httpPageFetcher;
+    private final PageScripts pageScripts;
+    private final PageReadiness pageReadiness;
+    private final RequestPacer requestPacer;
+    private final BlockDetector blockDetector;
+    private final HostCircuitBreaker circuitBreaker;
+    private final NetworkRequestFilter networkRequestFilter;
+    private final PageSnapshotStore snapshotStore;
+    private final ReplayServer replayServer;
+
+    // Lock-free counters to confirm concurrent searches really run on separate sessions
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    public AmazonSearchPageScraper(WebDriverPool webDriverPool, HttpPageFetcher httpPageFetcher,
+            PageScripts pageScripts, PageReadiness pageReadiness, RequestPacer requestPacer,
+            BlockDetector blockDetector, HostCircuitBreaker circuitBreaker,
+            NetworkRequestFilter networkRequestFilter, PageSnapshotStore snapshotStore,
+            ReplayServer replayServer) {
+        this.webDriverPool = webDriverPool;
+        this.httpPageFetcher = httpPageFetcher;
+        this.pageScripts = pageScripts;
+        this.pageReadiness = pageReadiness;
+        this.requestPacer = requestPacer;
+        this.blockDetector = blockDetector;
+        this.circuitBreaker = circuitBreaker;
+        this.networkRequestFilter = networkRequestFilter;
+        this.snapshotStore = snapshotStore;
+        this.replayServer = replayServer;
     }
 
     public List<Product> scrapeSearchPage(String url) {
+        return scrapeSearchPage(url, card -> {
+        });
+    }
 
+    /**
+     * Same as {@link #scrapeSearchPage(String)}, but also hands every result card to
+     * {@code onCard} the moment it is extracted, so callers can start work on early cards while
+     * the rest of the page is still being read. Cards come in page order.
+     */
+    public List<Product> scrapeSearchPage(String url, Consumer<Product> onCard) {
         log.info("Starting Shallow Scrape from url : {}", url);
         validateUrl(url);
-        try {
-            driver.get(url);
+        // Fail fast while Amazon is known to be blocking us; an unfinished half-open probe is handed back
+        try (HostCircuitBreaker.Probe ignored = circuitBreaker.checkAllowed(URI.create(url).getHost())) {
+            int current = inFlight.incrementAndGet();
+            peakInFlight.accumulateAndGet(current, Math::max);
             try {
-                // Random Sleep (2s - 4s)
-                long sleepTime = 2000 + (long) (Math.random() * 2000);
-                Thread.sleep(sleepTime);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                // Fast path: search results are server-rendered, try without a browser first
+                List<Product> fetched = scrapeOverHttp(url, onCard);
+                if (!fetched.isEmpty()) {
+                    log.info("Extracted {} products over HTTP from search page.", fetched.size());
+                    return fetched;
+                }
+                return scrapeWithBrowser(url, onCard);
+            } finally {
+                inFlight.decrementAndGet();
             }
+        }
+    }
 
-            // Quick wait for results
-            new WebDriverWait(driver, Duration.ofSeconds(5));
-
-            List<Product> products = extractProductsFromSearch();
-
-            if (products.isEmpty()) {
-                String pageSource = driver.getPageSource().toLowerCase();
-                if (pageSource.contains("captcha") || pageSource.contains("enter the characters you see below")) {
-                    log.error("CAPTCHA DETECTED: Amazon is blocking the scraper on URL: {}", url);
-                } else {
-                    log.warn("No products found, but no explicit CAPTCHA detected on URL: {}", url);
+    private List<Product> scrapeWithBrowser(String url, Consumer<Product> onCard) {
+        // Each search gets its own leased browser, so parallel requests never share navigation state.
+        // The pacing slot is waited for first, so the lease is not held while paced
+        try (CancellationScope.Registration ignored = CancellationScope.current().interruptOnCancel()) {
+            requestPacer.await(URI.create(url).getHost());
+            try (WebDriverPool.Lease lease = webDriverPool.lease()) {
+                try {
+                    return scrapeWithDriver(lease.driver(), url, onCard);
+                } catch (WebDriverException e) {
+                    lease.invalidate();
+                    throw e;
                 }
             }
-
-            log.info("Extracted {} products with metadata from search page.", products.size());
-            return products;
-
+        } catch (ScraperBlockedException e) {
+            throw e;
         } catch (Exception e) {
+            if (CancellationScope.current().isCancelled()) {
+                // Clear the interrupt meant for this scrape before the thread goes back to its pool
+                Thread.interrupted();
+                throw new CancellationException("Search scrape of " + url + " cancelled");
+            }
             log.error("Error in shallow scraping : ", e);
             throw new ScrapingException("Error in shallow scraping", e);
         }
     }
 
+    private List<Product> scrapeWithDriver(WebDriver driver, String url, Consumer<Product> onCard) {
+        String host = URI.create(url).getHost();
+        driver.get(replayServer.route(url));
+        // Wait for result cards instead of a fixed sleep
+        pageReadiness.await(driver, PageReadiness.PageType.SEARCH);
+
+        if (blockDetector.isBlocked(driver)) {
+            log.error("CAPTCHA DETECTED: Amazon is blocking the scraper on URL: {}", url);
+            circuitBreaker.recordBlocked(host);
+            throw new ScraperBlockedException("CAPTCHA page served for " + url);
+        }
+        circuitBreaker.recordSuccess(host);
+        if (snapshotStore.isRecording()) {
+            snapshotStore.save(url, driver.getPageSource());
+        }
+
+        NetworkRequestFilter.PageStats network = networkRequestFilter.collectStats(driver);
+        log.debug("Page {}: blocked {} requests {}, loaded {} requests ({} bytes)", url,
+                network.blockedRequests(), network.blockedByType(), network.loadedRequests(), network.loadedBytes());
+
+        List<Product> products = extractProductsFromSearch(driver, onCard);
+
+        if (products.isEmpty()) {
+            log.warn("No products found, but no explicit CAPTCHA detected on URL: {}", url);
+        }
+
+        log.info("Extracted {} products with metadata from search page.", products.size());
+        return products;
+    }
+
+    private List<Product> scrapeOverHttp(String url, Consumer<Product> onCard) {
+        if (!httpPageFetcher.isEnabled())
+            return List.of();
+        // fetch() swallows transport errors and returns null
+        Document document = httpPageFetcher.fetch(url);
+        if (document == null)
+            return List.of();
+        if (blockDetector.isBlocked(document)) {
+            log.warn("Bot wall on HTTP fetch of search page {}, falling back to browser", url);
+            return List.of();
+        }
+        circuitBreaker.recordSuccess(URI.create(url).getHost());
+        return extractProductsFromHtml(document, onCard);
+    }
+
+    /**
+     * Re-extracts result cards from the last stored snapshot of a search page, without fetching it.
+     */
+    public List<Product> reparseSnapshot(String url) {
+        PageSnapshotStore.Snapshot snapshot = snapshotStore.latest(url)
+                .orElseThrow(() -> new ProductNotFound("No stored snapshot for " + url));
+        return extractProductsFromHtml(Jsoup.parse(snapshot.html(), snapshot.url()), card -> {
+        });
+    }
+
+    /**
+     * HTML counterpart of {@link #extractProductsFromSearch(WebDriver)}, same card rules.
+     */
+    List<Product> extractProductsFromHtml(Document document, Consumer<Product> onCard) {
+        List<Product> products = new ArrayList<>();
+        Set<String> uniqueAsins = new HashSet<>();
+
+        List<Element> cards = document.select(AmazonSelectors.SEARCH_CARD);
+        if (cards.isEmpty()) {
+            cards = document.select(AmazonSelectors.SEARCH_CARD_STRICT);
+        }
+
+        for (Element card : cards) {
+            String asin = card.attr("data-asin").trim();
+            if (asin.isEmpty() || uniqueAsins.contains(asin))
+                continue;
+
+            // Organic: h2 > a, Sponsored/Alternative: a > h2
+            Element title = card.selectFirst("h2");
+            if (title == null)
+                continue;
+            Element link = title.selectFirst("a");
+            if (link == null && title.parent() != null && "a".equalsIgnoreCase(title.parent().tagName())) {
+                link = title.parent();
+            }
+            if (link == null)
+                continue;
+
+            Element ratingElement = card.selectFirst(AmazonSelectors.SEARCH_RATING);
+            Element priceElement = card.selectFirst(AmazonSelectors.SEARCH_PRICE);
+            Element reviewCountElement = card.selectFirst(AmazonSelectors.SEARCH_REVIEW_COUNT);
+            // Resolved against the page's own URL, so an amazon.com search keeps amazon.com links
+            String href = link.absUrl("href");
+            Product p = toCardProduct(title.text(), href.isEmpty() ? link.attr("href") : href,
+                    ratingElement != null ? ratingElement.attr("aria-label") : null,
+                    priceElement != null ? priceElement.text() : null,
+                    reviewCountElement != null ? reviewCountElement.text() : null);
+            if (p == null)
+                continue;
+
+            products.add(p);
+            uniqueAsins.add(asin);
+            onCard.accept(p);
+            if (products.size() >= AmazonSelectors.MAX_SEARCH_RESULTS)
+                break;
+        }
+        return products;
+    }
+
+    /**
+     * Builds a shallow product from the raw fields of one search card, applying the same URL and
+     * rating rules for every extraction path. Returns null if the card does not link to a product.
+     */
+    private Product toCardProduct(String name, String href, String ratingLabel, String price, String reviewCount) {
+        if (href == null || href.isEmpty() || href.contains("javascript:") || href.endsWith("#"))
+            return null;
+
+        String fullUrl = completeUrl(href);
+        // Double check it's not the search page itself
+        if (fullUrl.contains("/s?k=") && !fullUrl.contains("/dp/") && !fullUrl.contains("/gp/")) {
+            log.debug("Skipping search result that points to another search: {}", fullUrl);
+            return null;
+        }
+
+        Double rating = 0.0;
+        if (ratingLabel != null) {
+            try {
+                rating = Double.parseDouble(ratingLabel.split(" ")[0]);
+            } catch (NumberFormatException e) {
+                // Rating is often missing for sponsored/new items
+            }
+        }
+
+        Integer count = null;
+        if (reviewCount != null) {
+            String digits = reviewCount.replaceAll("[^0-9]", "");
+            if (!digits.isEmpty() && digits.length() < 10)
+                count = Integer.parseInt(digits);
+        }
+
+        return Product.builder()
+                .name(name)
+                .url(fullUrl)
+                .rating(rating)
+                .price(price != null && !price.isEmpty() ? price : "N/A")
+                .reviewCount(count)
+                // Initialize empty lists
+                .pros(new ArrayList<>())
+                .cons(new ArrayList<>())
+                .verdict("Pending Analysis")
+                .build();
+    }
+
+    public int getInFlightSearches() {
+        return inFlight.get();
+    }
+
+    public int getPeakInFlightSearches() {
+        return peakInFlight.get();
+    }
+
     // Kept for backward compatibility if needed, but delegates to new logic
     public List<String> scrapeAmazonOnUrl(String url) {
         List<Product> products = scrapeSearchPage(url);
@@ -72,6 +286,8 @@ public class AmazonSearchPageScraper {
     }
 
     public void validateUrl(String url) {
+        if (replayServer.isReplayUrl(url))
+            return;
         try {
             URL urlToParse = new URL(url);
             String host = urlToParse.getHost().toLowerCase();
@@ -86,17 +302,70 @@ public class AmazonSearchPageScraper {
         }
     }
 
-    public List<Product> extractProductsFromSearch() {
+    /**
+     * Reads all result cards with a single script evaluation instead of 5-8 WebDriver calls per
+     * card. Falls back to the per-element path if the script cannot run.
+     */
+    public List<Product> extractProductsFromSearch(WebDriver driver) {
+        return extractProductsFromSearch(driver, card -> {
+        });
+    }
+
+    private List<Product> extractProductsFromSearch(WebDriver driver, Consumer<Product> onCard) {
+        List<Product> products = extractProductsInBulk(driver, onCard);
+        return products != null ? products : extractProductsPerElement(driver, onCard);
+    }
+
+    // Package-private for SearchExtractionBenchmarkTest, which compares the two paths on saved pages
+    @SuppressWarnings("unchecked")
+    List<Product> extractProductsInBulk(WebDriver driver, Consumer<Product> onCard) {
+        List<Map<String, Object>> cards;
+        try {
+            cards = (List<Map<String, Object>>) ((JavascriptExecutor) driver).executeScript(
+                    pageScripts.get("extractSearchCards.js"),
+                    AmazonSelectors.SEARCH_CARD,
+                    AmazonSelectors.SEARCH_CARD_STRICT,
+                    AmazonSelectors.SEARCH_RATING,
+                    AmazonSelectors.SEARCH_PRICE,
+                    AmazonSelectors.SEARCH_REVIEW_COUNT);
+        } catch (Exception e) {
+            log.warn("Bulk card extraction failed, falling back to per-element path: {}", e.getMessage());
+            return null;
+        }
+        if (cards == null)
+            return null;
+
+        log.debug("Found {} potential product cards.", cards.size());
+        List<Product> products = new ArrayList<>();
+        Set<String> uniqueAsins = new HashSet<>();
+        for (Map<String, Object> card : cards) {
+            String asin = (String) card.get("asin");
+            if (uniqueAsins.contains(asin))
+                continue;
+            Product p = toCardProduct((String) card.get("title"), (String) card.get("href"),
+                    (String) card.get("rating"), (String) card.get("price"), (String) card.get("reviewCount"));
+            if (p == null)
+                continue;
+            products.add(p);
+            uniqueAsins.add(asin);
+            onCard.accept(p);
+            if (products.size() >= AmazonSelectors.MAX_SEARCH_RESULTS)
+                break;
+        }
+        return products;
+    }
+
+    List<Product> extractProductsPerElement(WebDriver driver, Consumer<Product> onCard) {
         List<Product> products = new ArrayList<>();
         Set<String> uniqueAsins = new HashSet<>();
 
         // Try to find any items with an ASIN (most reliable way to find products)
-        List<WebElement> cards = driver.findElements(By.cssSelector("div[data-asin]"));
+        List<WebElement> cards = driver.findElements(By.cssSelector(AmazonSelectors.SEARCH_CARD));
 
         if (cards.isEmpty()) {
             // Fallback to strict class if data-asin is somehow missing (unlikely for
             // products)
-            cards = driver.findElements(By.cssSelector("div[data-component-type='s-search-result']"));
+            cards = driver.findElements(By.cssSelector(AmazonSelectors.SEARCH_CARD_STRICT));
         }
 
         log.debug("Found {} potential product cards.", cards.size());
@@ -138,63 +407,20 @@ public class AmazonSearchPageScraper {
                 if (titleElement == null || linkElement == null)
                     continue;
 
-                String name = titleElement.getText();
-                String href = linkElement.getAttribute("href");
-
-                // Validate URL
-                if (href == null || href.isEmpty() || href.contains("javascript:") || href.endsWith("#")) {
-                    // Try getting data-href or fallback
+                // Same raw fields the bulk script reads, mapped by the same rules
+                WebElement ratingElement = firstOrNull(card, AmazonSelectors.SEARCH_RATING);
+                Product p = toCardProduct(textOf(titleElement), linkElement.getAttribute("href"),
+                        ratingElement != null ? ratingElement.getAttribute("aria-label") : null,
+                        textOf(firstOrNull(card, AmazonSelectors.SEARCH_PRICE)),
+                        textOf(firstOrNull(card, AmazonSelectors.SEARCH_REVIEW_COUNT)));
+                if (p == null)
                     continue;
-                }
-
-                String fullUrl = completeUrl(href);
-                // Double check it's not the search page itself
-                if (fullUrl.contains("/s?k=") && !fullUrl.contains("/dp/") && !fullUrl.contains("/gp/")) {
-                    log.debug("Skipping search result that points to another search: {}", fullUrl);
-                    continue;
-                }
-
-                // 2. Rating
-                Double rating = 0.0;
-                try {
-                    // Try explicit rating span first
-                    WebElement ratingElement = card.findElement(By.cssSelector("span[aria-label*='out of 5 stars']"));
-                    String ratingText = ratingElement.getAttribute("aria-label");
-
-                    if (ratingText != null) {
-                        String ratingNum = ratingText.split(" ")[0];
-                        rating = Double.parseDouble(ratingNum);
-                    }
-                } catch (Exception e) {
-                    // Rating is often missing for sponsored/new items
-                }
-
-                // 3. Price
-                String price = "N/A";
-                try {
-                    // Try hidden offscreen price which is standard
-                    WebElement priceElement = card.findElement(By.cssSelector("span.a-price span.a-offscreen"));
-                    price = priceElement.getAttribute("innerText");
-                } catch (Exception e) {
-                    // Price might be missing
-                }
-
-                // Create Product Object
-                Product p = Product.builder()
-                        .name(name)
-                        .url(fullUrl)
-                        .rating(rating)
-                        .price(price)
-                        // Initialize empty lists
-                        .pros(new ArrayList<>())
-                        .cons(new ArrayList<>())
-                        .verdict("Pending Analysis")
-                        .build();
 
                 products.add(p);
                 uniqueAsins.add(asin);
+                onCard.accept(p);
 
-                if (products.size() >= 15)
+                if (products.size() >= AmazonSelectors.MAX_SEARCH_RESULTS)
                     break;
 
             } catch (Exception e) {
@@ -206,23 +432,27 @@ public class AmazonSearchPageScraper {
         return products;
     }
 
-    private String extractAsin(String url) {
-        // Simple extraction for uniqueness check
-        try {
-            if (url.contains("/dp/")) {
-                int index = url.indexOf("/dp/");
-                return url.substring(index + 4, index + 14);
-            }
-        } catch (Exception e) {
-        }
-        return url; // fallback to full url
+    private WebElement firstOrNull(WebElement card, String selector) {
+        List<WebElement> elements = card.findElements(By.cssSelector(selector));
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
+    // Falls back to textContent for visually hidden elements such as the offscreen price, like the script
+    private String textOf(WebElement element) {
+        if (element == null)
+            return null;
+        String text = element.getAttribute("innerText");
+        if (text == null || text.isBlank())
+            text = element.getAttribute("textContent");
+        return text != null ? text.trim() : null;
     }
 
     private String completeUrl(String href) {
-        if (href.startsWith("http")) {
-            return href;
-        }
-        return "https://www.amazon.in" + href;
+        // Links on replayed pages point at the replay server, map them back first
+        String url = replayServer.unroute(href.startsWith("http") ? href : "https://www.amazon.in" + href);
+        // Drop slugs and ref/tracking params so the same product gets the same URL everywhere;
+        // redirect links (sponsored /sspa/click) have no ASIN in the path and are left alone
+        return AmazonUrls.extractAsin(url) != null ? AmazonUrls.canonicalize(url) : url;
     }
 }
 // String[] selectors = {};
\ No newline at end of file
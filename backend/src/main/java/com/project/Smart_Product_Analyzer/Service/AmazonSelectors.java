@@ -0,0 +1,100 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * CSS selector lists for Amazon pages, shared by the Selenium and the plain HTTP extraction paths
+ * so both read the same fields the same way. Selectors are tried in order, most specific first.
+ */
+public final class AmazonSelectors {
+
+    public static final String[] PRODUCT_NAME = {
+            "#productTitle",
+            "#title",
+            "h1#title",
+            "#feature-title",
+            ".product-title-word-break"
+    };
+
+    public static final String[] PRODUCT_PRICE = {
+            "#corePrice_feature_div .a-price .a-offscreen",
+            "#corePriceDisplay_desktop_feature_div .a-price .a-offscreen",
+            ".a-price .a-offscreen",
+            "#priceblock_ourprice",
+            "#priceblock_dealprice",
+            ".a-price-whole" // Fallback to just the whole number part
+    };
+
+    public static final String[] PRODUCT_IMAGE = {
+            "#landingImage",
+            "#imgTagWrapperId img",
+            "#main-image",
+            ".a-dynamic-image",
+            "img[data-a-image-name='landingImage']"
+    };
+
+    public static final String[] REVIEW_BODY = {
+            "div[data-hook='review-collapsed']",
+            "span[data-hook='review-body'] span",
+            ".review-text-content span",
+            "#feature-bullets li span.a-list-item" // Fallback to features if no reviews
+    };
+
+    // Review bodies on the product-reviews/{ASIN} list pages
+    public static final String[] REVIEW_PAGE_BODY = {
+            "span[data-hook='review-body'] span",
+            "span[data-hook='review-body']",
+            ".review-text-content span"
+    };
+
+    public static final String SEARCH_CARD = "div[data-asin]";
+    public static final String SEARCH_CARD_STRICT = "div[data-component-type='s-search-result']";
+    public static final String SEARCH_RATING = "span[aria-label*='out of 5 stars']";
+    public static final String SEARCH_PRICE = "span.a-price span.a-offscreen";
+    public static final String SEARCH_REVIEW_COUNT = "span[aria-label$='ratings'], a[href*='#customerReviews'] span";
+
+    public static final int MAX_REVIEWS = 10;
+    public static final int MAX_SEARCH_RESULTS = 15;
+    public static final String NO_IMAGE_URL = "https://via.placeholder.com/300?text=No+Image";
+
+    private AmazonSelectors() {
+    }
+
+    /**
+     * Picks reviews from candidate texts grouped by {@link #REVIEW_BODY} selector: the first group
+     * that yields any valid review wins, capped at {@link #MAX_REVIEWS}.
+     */
+    public static List<String> pickReviews(List<? extends List<String>> candidatesBySelector) {
+        for (List<String> candidates : candidatesBySelector) {
+            Set<String> reviews = new LinkedHashSet<>(); // Preserve order
+            for (String text : candidates) {
+                if (isValidReview(text)) {
+                    reviews.add(text.trim());
+                    if (reviews.size() >= MAX_REVIEWS)
+                        break;
+                }
+            }
+            if (!reviews.isEmpty())
+                return new ArrayList<>(reviews);
+        }
+        return new ArrayList<>();
+    }
+
+    public static boolean isValidReview(String text) {
+        if (text == null)
+            return false;
+        String t = text.trim();
+        return t.length() > 20 && // Increase min length
+                !t.contains("Verified Purchase") &&
+                !t.contains("Helpful") &&
+                !t.contains("Report") &&
+                !t.contains("stars") &&
+                !t.contains("out of 5") &&
+                !t.contains("customer reviews") &&
+                !t.contains("See all") &&
+                !t.contains("Write a review");
+    }
+}
@@ -0,0 +1,159 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns any Amazon product link (amazon.in/.com, m./smile. hosts, /Name/dp/X/ref=...?th=1,
+ * amzn.in / amzn.to / a.co short links) into one canonical form, https://www.amazon.xx/dp/ASIN,
+ * so caches, history lookups and dedupe see the same product as the same key.
+ * <p>
+ * Short links are resolved by following their redirects without downloading the page, on a small
+ * pool of its own; results are cached, and concurrent lookups of the same short link share one
+ * resolution. Only short-link and Amazon marketplace hosts are ever contacted: a redirect anywhere
+ * else leaves the link unresolved. Anything that is not a URL (a product description) is returned
+ * trimmed but otherwise unchanged.
+ */
+@Slf4j
+@Component
+public class AmazonUrlCanonicalizer {
+
+    private static final Set<String> SHORT_LINK_HOSTS = Set.of("amzn.in", "amzn.to", "amzn.eu", "amzn.asia", "a.co");
+    private static final int MAX_REDIRECTS = 5;
+
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final int maxResolvedLinks;
+    private final Map<String, CompletableFuture<String>> resolvedShortLinks = new ConcurrentHashMap<>();
+    // Resolutions block on HEAD requests, so they stay off the common pool
+    private final ExecutorService resolvers;
+
+    private final LongAdder shortLinkLookups = new LongAdder();
+    private final LongAdder shortLinkResolutions = new LongAdder();
+
+    public AmazonUrlCanonicalizer(@Value("${scraper.short-links.timeout-ms:3000}") long timeoutMs,
+            @Value("${scraper.short-links.cache-size:1000}") int maxResolvedLinks,
+            @Value("${scraper.short-links.threads:2}") int threads) {
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.maxResolvedLinks = maxResolvedLinks;
+        this.httpClient = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(timeout)
+                .build();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.resolvers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "ShortLinkResolver-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Canonical form of an analysis input. Callers of analyzeLink pass this form, which is also its
+     * cache key.
+     */
+    public String canonicalize(String input) {
+        if (input == null)
+            return null;
+        String trimmed = input.trim();
+        if (!trimmed.startsWith("http"))
+            return trimmed;
+
+        String url = isShortLink(trimmed) ? resolveShortLink(trimmed) : trimmed;
+        return AmazonUrls.canonicalize(url);
+    }
+
+    /**
+     * True if both inputs point at the same product page (or are the same description).
+     */
+    public boolean sameProduct(String a, String b) {
+        return a != null && b != null && canonicalize(a).equals(canonicalize(b));
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("shortLinkLookups", shortLinkLookups.sum());
+        metrics.put("shortLinkResolutions", shortLinkResolutions.sum());
+        metrics.put("cachedShortLinks", resolvedShortLinks.size());
+        return metrics;
+    }
+
+    private boolean isShortLink(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null && SHORT_LINK_HOSTS.contains(host.toLowerCase());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private String resolveShortLink(String shortLink) {
+        shortLinkLookups.increment();
+        if (resolvedShortLinks.size() >= maxResolvedLinks) {
+            // Short links are cheap to resolve again; a full reset keeps this simple and bounded
+            resolvedShortLinks.clear();
+        }
+        CompletableFuture<String> resolution = resolvedShortLinks.computeIfAbsent(shortLink,
+                link -> CompletableFuture.supplyAsync(() -> followRedirects(link), resolvers));
+        try {
+            return resolution.join();
+        } catch (Exception e) {
+            resolvedShortLinks.remove(shortLink, resolution);
+            log.warn("Could not resolve short link {}: {}", shortLink, e.getMessage());
+            return shortLink;
+        }
+    }
+
+    private String followRedirects(String shortLink) {
+        shortLinkResolutions.increment();
+        String current = shortLink;
+        for (int hop = 0; hop < MAX_REDIRECTS; hop++) {
+            URI uri = URI.create(current);
+            if (AmazonUrls.isMarketplaceHost(uri.getHost()))
+                return current;
+            if (!isShortLink(current))
+                throw new IllegalStateException("Redirected off Amazon to " + uri.getHost());
+            try {
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .timeout(timeout)
+                        .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                        .build();
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                String location = response.headers().firstValue("Location").orElse(null);
+                if (location == null)
+                    return current;
+                current = uri.resolve(location).toString();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted resolving " + shortLink, e);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to resolve " + shortLink, e);
+            }
+        }
+        if (AmazonUrls.isMarketplaceHost(URI.create(current).getHost()))
+            return current;
+        throw new IllegalStateException("Still redirecting after " + MAX_REDIRECTS + " hops");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        resolvers.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import java.net.URI;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsing helpers for Amazon URLs: ASIN extraction and a canonical form without tracking noise,
+ * so the same page fetched via different links maps to the same key.
+ */
+public final class AmazonUrls {
+
+    private static final Pattern ASIN_PATTERN =
+            Pattern.compile("/(?:dp|gp/product|gp/aw/d|product-reviews)/([A-Z0-9]{10})(?:[/?#]|$)");
+
+    // Query parameters that change what a search page shows; everything else is tracking
+    private static final Set<String> SEARCH_PARAMS = Set.of("k", "rh", "s", "i", "page", "low-price", "high-price");
+
+    // Registrable domains of the Amazon marketplaces
+    private static final Set<String> MARKETPLACE_DOMAINS = Set.of("amazon.com", "amazon.in", "amazon.co.uk",
+            "amazon.de", "amazon.fr", "amazon.it", "amazon.es", "amazon.nl", "amazon.se", "amazon.pl",
+            "amazon.com.be", "amazon.com.tr", "amazon.ca", "amazon.com.mx", "amazon.com.br", "amazon.co.jp",
+            "amazon.com.au", "amazon.sg", "amazon.ae", "amazon.sa", "amazon.eg", "amazon.cn");
+
+    private AmazonUrls() {
+    }
+
+    /**
+     * Returns the ASIN in a product URL, or null if the URL does not point at a product.
+     */
+    public static String extractAsin(String url) {
+        if (url == null)
+            return null;
+        Matcher matcher = ASIN_PATTERN.matcher(url);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * True if the host is an Amazon marketplace or one of its subdomains. Hosts that merely contain
+     * "amazon." (amazon.example.com) are not.
+     */
+    public static boolean isMarketplaceHost(String host) {
+        if (host == null)
+            return false;
+        String h = host.toLowerCase();
+        if (h.endsWith("."))
+            h = h.substring(0, h.length() - 1);
+        for (String domain : MARKETPLACE_DOMAINS) {
+            if (h.equals(domain) || h.endsWith("." + domain))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Maps amazon.in, m.amazon.in, smile.amazon.in etc. to the www host of the marketplace.
+     */
+    public static String marketplaceHost(String host) {
+        if (host == null)
+            return "";
+        String h = host.toLowerCase();
+        int amazon = h.indexOf("amazon.");
+        return amazon >= 0 ? "www." + h.substring(amazon) : h;
+    }
+
+    /**
+     * Product URLs become https://host/dp/ASIN; other URLs keep their path and only the query
+     * parameters that affect the page, in sorted order.
+     */
+    public static String canonicalize(String url) {
+        try {
+            URI uri = URI.create(url.trim());
+            String host = marketplaceHost(uri.getHost());
+            String asin = extractAsin(url);
+            if (asin != null) {
+                return "https://" + host + "/dp/" + asin;
+            }
+
+            TreeMap<String, String> params = new TreeMap<>();
+            if (uri.getRawQuery() != null) {
+                for (String pair : uri.getRawQuery().split("&")) {
+                    int eq = pair.indexOf('=');
+                    String name = eq >= 0 ? pair.substring(0, eq) : pair;
+                    if (SEARCH_PARAMS.contains(name)) {
+                        params.put(name, eq >= 0 ? pair.substring(eq + 1) : "");
+                    }
+                }
+            }
+            StringBuilder canonical = new StringBuilder("https://").append(host)
+                    .append(uri.getRawPath() == null ? "" : uri.getRawPath());
+            char separator = '?';
+            for (var param : params.entrySet()) {
+                canonical.append(separator).append(param.getKey()).append('=').append(param.getValue());
+                separator = '&';
+            }
+            return canonical.toString();
+        } catch (Exception e) {
+            return url;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges the PROS/CONS/VERDICT/RATING analyses of several review batches locally, instead of
+ * asking the model to combine them.
+ * <p>
+ * Pros and cons that say the same thing in different batches are clustered by token-set
+ * (Jaccard) similarity and ordered by how many reviews back them. The rating is the average of
+ * the batch ratings weighted by batch size. The output uses the same format as a single batch,
+ * so it is parsed the same way downstream.
+ */
+@Component
+public class BatchAnalysisMerger {
+
+    /**
+     * The model's answer for one batch and the number of reviews it covered.
+     */
+    public record BatchResult(String summary, int reviewCount) {
+    }
+
+    /**
+     * Merged pros and cons, weighted rating (null if no batch had one) and the verdict of the
+     * batch that agrees best with that rating.
+     */
+    public record MergedAnalysis(List<String> pros, List<String> cons, Double rating, String verdict) {
+
+        public String format(String finalVerdict) {
+            StringBuilder out = new StringBuilder("PROS:-\n");
+            (pros.isEmpty() ? List.of("No pros found") : pros).forEach(p -> out.append("- ").append(p).append('\n'));
+            out.append("CONS:-\n");
+            (cons.isEmpty() ? List.of("No cons found") : cons).forEach(c -> out.append("- ").append(c).append('\n'));
+            out.append("VERDICT:-").append(finalVerdict).append('\n');
+            out.append("RATING:-").append(rating != null ? String.format(Locale.ROOT, "%.2f", rating) : "");
+            return out.toString();
+        }
+    }
+
+    private record Parsed(List<String> pros, List<String> cons, String verdict, Double rating, int weight) {
+    }
+
+    private static final class Cluster {
+        final String text;
+        final Set<String> tokens;
+        int support;
+
+        Cluster(String text, Set<String> tokens, int support) {
+            this.text = text;
+            this.tokens = tokens;
+            this.support = support;
+        }
+    }
+
+    // Same section layout ProductService.parseAnalysisResponse reads
+    private static final String HEADER = "(?:^|\\n)\\s*(?:\\*\\*|#)*\\s*";
+    private static final String AFTER_HEADER = "(?:\\*\\*|#|:|-|\\s)*([\\s\\S]*?)";
+    private static final Pattern PROS = section("PROS", "CONS|VERDICT|RATING");
+    private static final Pattern CONS = section("CONS", "VERDICT|RATING");
+    private static final Pattern VERDICT = section("VERDICT", "RATING");
+    private static final Pattern RATING = Pattern.compile(HEADER + "RATING" + AFTER_HEADER + "(?=\\s*$)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:\\.\\d+)?");
+    private static final Pattern NOTHING_FOUND = Pattern.compile("(?i)^no (?:pros|cons|items) found\\.?$");
+    private static final Pattern TOKEN = Pattern.compile("[a-z0-9]+");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "the", "and", "or", "but", "is", "are",
+            "was", "were", "be", "it", "its", "this", "that", "of", "to", "in", "on", "for", "with", "very",
+            "too", "so", "as", "at", "by", "not", "has", "have", "after", "some", "can");
+
+    private final double similarity;
+    private final int maxItems;
+
+    private final LongAdder merges = new LongAdder();
+    private final LongAdder mergedDuplicates = new LongAdder();
+    private final LongAdder unparsedBatches = new LongAdder();
+
+    public BatchAnalysisMerger(@Value("${ai.merge.similarity:0.5}") double similarity,
+            @Value("${ai.merge.max-items:6}") int maxItems) {
+        this.similarity = similarity;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Merges the batch analyses. Returns null if none of them could be parsed.
+     */
+    public MergedAnalysis merge(List<BatchResult> batches) {
+        List<Parsed> parsed = new ArrayList<>();
+        for (BatchResult batch : batches) {
+            Parsed analysis = parse(batch);
+            if (analysis != null) {
+                parsed.add(analysis);
+            } else {
+                unparsedBatches.increment();
+            }
+        }
+        if (parsed.isEmpty())
+            return null;
+        merges.increment();
+
+        double weightedSum = 0;
+        int ratedWeight = 0;
+        for (Parsed analysis : parsed) {
+            if (analysis.rating() != null) {
+                weightedSum += analysis.rating() * analysis.weight();
+                ratedWeight += analysis.weight();
+            }
+        }
+        Double rating = ratedWeight == 0 ? null : weightedSum / ratedWeight;
+
+        return new MergedAnalysis(cluster(parsed, true), cluster(parsed, false), rating, closestVerdict(parsed, rating));
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("merges", merges.sum());
+        metrics.put("mergedDuplicates", mergedDuplicates.sum());
+        metrics.put("unparsedBatches", unparsedBatches.sum());
+        return metrics;
+    }
+
+    private Parsed parse(BatchResult batch) {
+        String text = batch.summary();
+        if (text == null)
+            return null;
+        List<String> pros = listItems(find(PROS, text));
+        List<String> cons = listItems(find(CONS, text));
+        String verdict = find(VERDICT, text);
+        Double rating = null;
+        String ratingText = find(RATING, text);
+        if (ratingText != null) {
+            Matcher number = NUMBER.matcher(ratingText);
+            if (number.find()) {
+                double value = Double.parseDouble(number.group());
+                if (value >= 0 && value <= 10)
+                    rating = value;
+            }
+        }
+        if (pros.isEmpty() && cons.isEmpty() && verdict == null && rating == null)
+            return null;
+        return new Parsed(pros, cons, verdict, rating, Math.max(1, batch.reviewCount()));
+    }
+
+    private List<String> cluster(List<Parsed> parsed, boolean pros) {
+        List<Cluster> clusters = new ArrayList<>();
+        for (Parsed analysis : parsed) {
+            for (String item : pros ? analysis.pros() : analysis.cons()) {
+                Set<String> tokens = tokensOf(item);
+                Cluster best = null;
+                double bestScore = 0;
+                for (Cluster cluster : clusters) {
+                    double score = jaccard(tokens, cluster.tokens);
+                    if (score > bestScore) {
+                        best = cluster;
+                        bestScore = score;
+                    }
+                }
+                if (best != null && bestScore >= similarity) {
+                    best.support += analysis.weight();
+                    mergedDuplicates.increment();
+                } else {
+                    clusters.add(new Cluster(item, tokens, analysis.weight()));
+                }
+            }
+        }
+        // Stable sort: equal support keeps first-seen order
+        return clusters.stream()
+                .sorted(Comparator.comparingInt((Cluster c) -> c.support).reversed())
+                .limit(maxItems)
+                .map(c -> c.text)
+                .toList();
+    }
+
+    // Verdict of the batch whose own rating is nearest the merged one, larger batches first
+    private String closestVerdict(List<Parsed> parsed, Double rating) {
+        return parsed.stream()
+                .filter(p -> p.verdict() != null && !p.verdict().isBlank())
+                .min(Comparator.comparingDouble((Parsed p) -> rating == null || p.rating() == null
+                                ? Double.MAX_VALUE
+                                : Math.abs(p.rating() - rating))
+                        .thenComparing(Comparator.comparingInt(Parsed::weight).reversed()))
+                .map(Parsed::verdict)
+                .orElse("No verdict available.");
+    }
+
+    private static Pattern section(String name, String nextSections) {
+        return Pattern.compile(HEADER + name + AFTER_HEADER + "(?=" + HEADER + "(?:" + nextSections + ")|$)",
+                Pattern.CASE_INSENSITIVE);
+    }
+
+    private static String find(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        if (!matcher.find())
+            return null;
+        String value = matcher.group(1).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static List<String> listItems(String text) {
+        List<String> items = new ArrayList<>();
+        if (text == null)
+            return items;
+        for (String line : text.split("\n")) {
+            String item = line.trim()
+                    .replaceFirst("^(?:[-*•]|\\d+\\.)\\s*", "")
+                    .replaceAll("^\\[|]$", "")
+                    .trim();
+            if (!item.isEmpty() && !NOTHING_FOUND.matcher(item).matches())
+                items.add(item);
+        }
+        return items;
+    }
+
+    private static Set<String> tokensOf(String text) {
+        Set<String> tokens = new HashSet<>();
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            if (!STOP_WORDS.contains(matcher.group()))
+                tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty())
+            return 0;
+        int shared = 0;
+        for (String token : a) {
+            if (b.contains(token))
+                shared++;
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+}
@@ -0,0 +1,47 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import org.jsoup.nodes.Document;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recognises Amazon's robot check / CAPTCHA interstitial on a loaded page.
+ * The browser check runs inside the page and returns a single boolean, instead of pulling the
+ * whole page source over the wire and lowercasing it.
+ */
+@Component
+public class BlockDetector {
+
+    private static final String CAPTCHA_TEXT = "enter the characters you see below";
+
+    private static final String BLOCK_PROBE = """
+            var d = document;
+            if (location.href.indexOf('/errors/validateCaptcha') >= 0) return true;
+            if (d.title.toLowerCase().indexOf('robot check') >= 0) return true;
+            if (d.querySelector("form[action*='validateCaptcha']")) return true;
+            var body = d.body ? d.body.innerText : '';
+            return body.length < 20000 && body.toLowerCase().indexOf(arguments[0]) >= 0;
+            """;
+
+    public boolean isBlocked(WebDriver driver) {
+        try {
+            Object blocked = ((JavascriptExecutor) driver).executeScript(BLOCK_PROBE, CAPTCHA_TEXT);
+            return Boolean.TRUE.equals(blocked);
+        } catch (Exception e) {
+            // A page we cannot even probe is not evidence of a block
+            return false;
+        }
+    }
+
+    public boolean isBlocked(Document document) {
+        if (document == null)
+            return false;
+        if (document.location().contains("/errors/validateCaptcha"))
+            return true;
+        String title = document.title().toLowerCase();
+        return title.contains("robot check")
+                || !document.select("form[action*='validateCaptcha']").isEmpty()
+                || document.text().toLowerCase().contains(CAPTCHA_TEXT);
+    }
+}
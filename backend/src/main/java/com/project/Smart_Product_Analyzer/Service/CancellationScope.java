@@ -0,0 +1,231 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
+/**
+ * Cancellation signal for one analysis and everything it fans out to (scrapes, review pages,
+ * LLM calls). The scope of the running analysis is kept in a thread local and carried into
+ * executor tasks by {@link #propagate(Executor)} and the task executor's decorator, so deep code
+ * can check it or register cleanup without it being passed around.
+ * <p>
+ * A scope can also carry the request's latency budget. Stages check {@link #isOverBudget()}
+ * before starting more work and wait at most {@link #remainingMillis()}, so the analysis can
+ * return what it has when the deadline passes.
+ * <p>
+ * Work outside any analysis sees {@link #NONE}, which is never cancelled and has no deadline.
+ * <p>
+ * A {@link #child()} scope covers one branch of an analysis, such as a speculative scrape, that
+ * may be cancelled on its own.
+ */
+@Slf4j
+public class CancellationScope {
+
+    public static final CancellationScope NONE = new CancellationScope();
+
+    private static final ThreadLocal<CancellationScope> CURRENT = new ThreadLocal<>();
+
+    private final List<Runnable> onCancel = new ArrayList<>();
+    // Scope that holds the deadline: this one, or the root of a child's parents
+    private final CancellationScope budget;
+    private volatile Registration parentLink = () -> {
+    };
+    private volatile boolean cancelled;
+    private volatile boolean hasDeadline;
+    private volatile long deadlineNanos;
+    private volatile boolean overBudget;
+
+    public CancellationScope() {
+        this.budget = this;
+    }
+
+    private CancellationScope(CancellationScope parent) {
+        this.budget = parent.budget;
+    }
+
+    public static CancellationScope current() {
+        CancellationScope scope = CURRENT.get();
+        return scope != null ? scope : NONE;
+    }
+
+    /**
+     * Makes this the current scope of the calling thread until the returned handle is closed.
+     */
+    public Registration install() {
+        CancellationScope previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Scope for one branch of this analysis: cancelled along with it, but it can also be
+     * cancelled without touching the rest. Shares this scope's deadline. {@link #release()} it
+     * once the branch is done, so this scope stops tracking it.
+     */
+    public CancellationScope child() {
+        CancellationScope child = new CancellationScope(this);
+        child.parentLink = onCancel(child::cancel);
+        return child;
+    }
+
+    /**
+     * Unlinks a child scope from its parent.
+     */
+    public void release() {
+        parentLink.close();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled)
+            throw new CancellationException("Analysis cancelled");
+    }
+
+    /**
+     * Gives the analysis {@code budgetMs} from now. Ignored on {@link #NONE}.
+     */
+    public void setDeadline(long budgetMs) {
+        if (budget != this) {
+            budget.setDeadline(budgetMs);
+            return;
+        }
+        if (this == NONE)
+            return;
+        deadlineNanos = System.nanoTime() + budgetMs * 1_000_000;
+        hasDeadline = true;
+    }
+
+    /**
+     * Milliseconds left until the deadline, 0 once it has passed, {@code Long.MAX_VALUE} without one.
+     */
+    public long remainingMillis() {
+        if (budget != this)
+            return budget.remainingMillis();
+        if (!hasDeadline)
+            return Long.MAX_VALUE;
+        return Math.max(0, (deadlineNanos - System.nanoTime()) / 1_000_000);
+    }
+
+    /**
+     * True once the deadline has passed. Callers skip the work they were about to start, so a
+     * true answer is remembered and the result reported as partial.
+     */
+    public boolean isOverBudget() {
+        if (budget != this)
+            return budget.isOverBudget();
+        if (hasDeadline && System.nanoTime() - deadlineNanos >= 0)
+            overBudget = true;
+        return overBudget;
+    }
+
+    /**
+     * Records that a stage gave up waiting because the deadline passed.
+     */
+    public void markOverBudget() {
+        if (budget != this) {
+            budget.markOverBudget();
+            return;
+        }
+        if (hasDeadline)
+            overBudget = true;
+    }
+
+    public boolean wasOverBudget() {
+        if (budget != this)
+            return budget.wasOverBudget();
+        return overBudget;
+    }
+
+    /**
+     * Runs {@code action} when the scope is cancelled (right away if it already is) until the
+     * returned handle is closed.
+     */
+    public Registration onCancel(Runnable action) {
+        if (this == NONE)
+            return () -> {
+            };
+        synchronized (onCancel) {
+            if (!cancelled) {
+                onCancel.add(action);
+                return () -> {
+                    synchronized (onCancel) {
+                        onCancel.remove(action);
+                    }
+                };
+            }
+        }
+        action.run();
+        return () -> {
+        };
+    }
+
+    /**
+     * Interrupts the calling thread on cancellation while the handle is open, to break out of
+     * blocking browser and HTTP calls.
+     */
+    public Registration interruptOnCancel() {
+        Thread thread = Thread.currentThread();
+        return onCancel(thread::interrupt);
+    }
+
+    public void cancel() {
+        if (this == NONE)
+            return;
+        List<Runnable> actions;
+        synchronized (onCancel) {
+            if (cancelled)
+                return;
+            cancelled = true;
+            actions = new ArrayList<>(onCancel);
+            onCancel.clear();
+        }
+        release();
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.debug("Cancellation callback failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs the task with the scope that was current when it was wrapped.
+     */
+    public static Runnable wrap(Runnable task) {
+        CancellationScope scope = current();
+        if (scope == NONE)
+            return task;
+        return () -> {
+            try (Registration ignored = scope.install()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * Executor view that carries the caller's scope into every task it runs.
+     */
+    public static Executor propagate(Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,113 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Model.Product;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Starts deep analysis of search cards while the search page is still being read. Every card at
+ * or above the rating threshold is launched right away, up to {@code limit} at a time; when a
+ * better card turns up after that, the weakest running candidate is cancelled and replaced.
+ * Each candidate runs in a child {@link CancellationScope} of the analysis, so cancelling it
+ * interrupts its scrape instead of just discarding the result.
+ * At the end the running set is exactly the top {@code limit} qualifying cards by rating, the
+ * same set the sort-then-limit step used to pick.
+ */
+@Slf4j
+class CandidatePipeline {
+
+    private record Speculation(Product card, CancellationScope scope, CompletableFuture<Product> result) {
+
+        void cancel() {
+            scope.cancel();
+            result.cancel(false);
+        }
+    }
+
+    private final int limit;
+    private final double minRating;
+    // product url -> deep analysis in the current scope, null result on failure
+    private final Function<String, CompletableFuture<Product>> launcher;
+    private final CancellationScope analysis = CancellationScope.current();
+
+    private final List<Speculation> running = new ArrayList<>();
+    private final Set<String> seenUrls = new HashSet<>();
+    private int started;
+    private int cancelled;
+
+    CandidatePipeline(int limit, double minRating, Function<String, CompletableFuture<Product>> launcher) {
+        this.limit = limit;
+        this.minRating = minRating;
+        this.launcher = launcher;
+    }
+
+    synchronized void offer(Product card) {
+        if (card.getRating() == null || card.getRating() < minRating || !seenUrls.add(card.getUrl()))
+            return;
+
+        if (running.size() >= limit) {
+            Speculation weakest = running.stream()
+                    .min(Comparator.comparingDouble(s -> s.card().getRating()))
+                    .orElseThrow();
+            // Ties keep the earlier card, as the old stable sort did
+            if (card.getRating() <= weakest.card().getRating())
+                return;
+            weakest.cancel();
+            running.remove(weakest);
+            cancelled++;
+            log.debug("Cancelled speculative scrape of {} ({}) for {} ({})", weakest.card().getName(),
+                    weakest.card().getRating(), card.getName(), card.getRating());
+        }
+
+        CancellationScope scope = analysis.child();
+        CompletableFuture<Product> result;
+        try (CancellationScope.Registration ignored = scope.install()) {
+            result = launcher.apply(card.getUrl());
+        }
+        result.whenComplete((product, error) -> scope.release());
+        running.add(new Speculation(card, scope, result));
+        started++;
+        log.debug("Started speculative deep scrape of {} ({})", card.getName(), card.getRating());
+    }
+
+    synchronized boolean hasCandidates() {
+        return !running.isEmpty();
+    }
+
+    /**
+     * Futures of the surviving candidates, best rated first.
+     */
+    synchronized List<CompletableFuture<Product>> results() {
+        return running.stream()
+                .sorted(Comparator.comparingDouble((Speculation s) -> s.card().getRating()).reversed())
+                .map(Speculation::result)
+                .toList();
+    }
+
+    /**
+     * Stops everything still running, e.g. when the search failed for another URL.
+     */
+    synchronized void cancelAll() {
+        for (Speculation speculation : running) {
+            speculation.cancel();
+            cancelled++;
+        }
+        running.clear();
+        seenUrls.clear();
+    }
+
+    synchronized int getStarted() {
+        return started;
+    }
+
+    synchronized int getCancelled() {
+        return cancelled;
+    }
+}
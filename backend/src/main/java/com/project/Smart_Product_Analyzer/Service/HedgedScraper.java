@@ -0,0 +1,169 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Model.Product;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deep scrapes with hedging against slow or hung product pages. When a scrape has run longer than
+ * the tracked latency percentile of recent deep scrapes, a duplicate is started (it leases its own
+ * browser session), the first successful result wins and the other attempt is interrupted.
+ * Hedges are capped at budget-fraction of all scrapes so a generally slow Amazon does not double
+ * the load on it.
+ */
+@Slf4j
+@Component
+public class HedgedScraper {
+
+    private final AmazonScraperService scraperService;
+    private final boolean enabled;
+    private final double percentile;
+    private final int minSamples;
+    private final long minDelayMs;
+    private final double budgetFraction;
+    private final LatencyTracker latencies;
+
+    // Attempts run here so the loser can be interrupted; concurrency is bounded by the browser pool
+    private final ExecutorService attempts = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "HedgedScrape");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder scrapes = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder hedgesDenied = new LongAdder();
+
+    public HedgedScraper(AmazonScraperService scraperService,
+            @Value("${scraper.hedging.enabled:true}") boolean enabled,
+            @Value("${scraper.hedging.percentile:0.95}") double percentile,
+            @Value("${scraper.hedging.min-samples:20}") int minSamples,
+            @Value("${scraper.hedging.min-delay-ms:2000}") long minDelayMs,
+            @Value("${scraper.hedging.budget-fraction:0.1}") double budgetFraction,
+            @Value("${scraper.hedging.window:200}") int window) {
+        this.scraperService = scraperService;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.minDelayMs = minDelayMs;
+        this.budgetFraction = budgetFraction;
+        this.latencies = new LatencyTracker(window);
+    }
+
+    /**
+     * Scrapes a product page like {@link AmazonScraperService#scrapeAmazonOnUrl(String)}, hedging
+     * the request if it turns out slow.
+     */
+    public Product scrape(String url) {
+        scrapes.increment();
+        CompletableFuture<Product> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        // A cancelled analysis stops waiting right away; the finally block interrupts the attempts
+        CancellationScope.Registration onCancel = CancellationScope.current()
+                .onCancel(() -> winner.completeExceptionally(new CancellationException("Analysis cancelled")));
+        Future<?> primary = attempt(url, winner, pending, false);
+        Future<?> hedge = null;
+        try {
+            long hedgeAfter = hedgeDelayMs();
+            if (hedgeAfter > 0) {
+                try {
+                    return winner.get(hedgeAfter, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (tryReserveHedge()) {
+                        log.info("Deep scrape of {} slower than p{} ({} ms), hedging", url,
+                                Math.round(percentile * 100), hedgeAfter);
+                        pending.incrementAndGet();
+                        hedge = attempt(url, winner, pending, true);
+                    }
+                } catch (ExecutionException e) {
+                    throw unwrap(e.getCause());
+                }
+            }
+            return winner.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scraping " + url, e);
+        } finally {
+            onCancel.close();
+            // Interrupt whichever attempt is still running
+            primary.cancel(true);
+            if (hedge != null)
+                hedge.cancel(true);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("scrapes", scrapes.sum());
+        metrics.put("hedges", hedges.sum());
+        metrics.put("hedgeWins", hedgeWins.sum());
+        metrics.put("hedgesDeniedByBudget", hedgesDenied.sum());
+        metrics.put("latencySamples", latencies.getSampleCount());
+        metrics.put("hedgeAfterMs", hedgeDelayMs());
+        return metrics;
+    }
+
+    private Future<?> attempt(String url, CompletableFuture<Product> winner, AtomicInteger pending, boolean isHedge) {
+        // Attempts run in the caller's cancellation scope
+        return attempts.submit(CancellationScope.wrap(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                Product product = scraperService.scrapeAmazonOnUrl(url);
+                latencies.record(System.currentTimeMillis() - start);
+                if (winner.complete(product) && isHedge) {
+                    hedgeWins.increment();
+                }
+            } catch (Throwable e) {
+                // Only fail the caller once every attempt has failed
+                if (pending.decrementAndGet() == 0) {
+                    winner.completeExceptionally(e);
+                }
+            }
+        }));
+    }
+
+    // 0 means don't hedge (disabled or not enough history yet)
+    private long hedgeDelayMs() {
+        if (!enabled || latencies.getSampleCount() < minSamples)
+            return 0;
+        return Math.max(minDelayMs, latencies.percentile(percentile));
+    }
+
+    private boolean tryReserveHedge() {
+        if (hedges.sum() + 1 > budgetFraction * scrapes.sum()) {
+            hedgesDenied.increment();
+            return false;
+        }
+        hedges.increment();
+        return true;
+    }
+
+    private RuntimeException unwrap(Throwable cause) {
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        attempts.shutdownNow();
+    }
+}
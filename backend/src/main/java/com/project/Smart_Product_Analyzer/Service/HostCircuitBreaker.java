@@ -0,0 +1,170 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Exception.ScraperBlockedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-host circuit breaker fed by {@link BlockDetector}.
+ * After a run of blocked pages the circuit opens and scrapes for that host fail fast instead of
+ * spending browser time on pages that will only show a CAPTCHA. Once the backoff has passed a
+ * single probe request is let through (half-open); a block doubles the backoff, a success closes
+ * the circuit again.
+ * <p>
+ * The probe is handed a {@link Probe} to close when it is done. If it ends without reporting
+ * either outcome (timeout, driver error, cancellation) closing hands the probe to the next
+ * caller, and a probe that never reports at all is replaced once its deadline has passed.
+ */
+@Slf4j
+@Component
+public class HostCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // openUntil is the end of the backoff while OPEN and the probe's deadline while HALF_OPEN
+    private record Circuit(State state, int consecutiveBlocks, long backoffMs, long openUntil, Probe probe) {
+    }
+
+    /**
+     * Held by the caller that was let through as the half-open probe.
+     */
+    public final class Probe implements AutoCloseable {
+        private final String host;
+
+        private Probe(String host) {
+            this.host = host;
+        }
+
+        /**
+         * Re-opens the circuit for an immediate new probe if this one has not reported an outcome.
+         */
+        @Override
+        public void close() {
+            AtomicReference<Circuit> ref = circuit(host);
+            Circuit c = ref.get();
+            while (c.state() == State.HALF_OPEN && c.probe() == this) {
+                Circuit reopened = new Circuit(State.OPEN, c.consecutiveBlocks(), c.backoffMs(),
+                        System.currentTimeMillis(), null);
+                if (ref.compareAndSet(c, reopened)) {
+                    log.info("Probe for {} ended without an outcome, next request probes again", host);
+                    return;
+                }
+                c = ref.get();
+            }
+        }
+    }
+
+    private final Map<String, AtomicReference<Circuit>> circuits = new ConcurrentHashMap<>();
+    private final int blockThreshold;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final long probeTimeoutMs;
+
+    public HostCircuitBreaker(@Value("${scraper.breaker.block-threshold:3}") int blockThreshold,
+            @Value("${scraper.breaker.initial-backoff-ms:30000}") long initialBackoffMs,
+            @Value("${scraper.breaker.max-backoff-ms:600000}") long maxBackoffMs,
+            @Value("${scraper.breaker.probe-timeout-ms:120000}") long probeTimeoutMs) {
+        this.blockThreshold = blockThreshold;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.probeTimeoutMs = probeTimeoutMs;
+    }
+
+    /**
+     * Throws {@link ScraperBlockedException} if requests to this host should not be made right now.
+     * Returns a {@link Probe} if this caller is the half-open probe, null otherwise; callers close
+     * it (try-with-resources accepts null) once the request is over.
+     */
+    public Probe checkAllowed(String host) {
+        AtomicReference<Circuit> ref = circuit(host);
+        while (true) {
+            Circuit c = ref.get();
+            if (c.state() == State.CLOSED)
+                return null;
+
+            long now = System.currentTimeMillis();
+            // Backoff over, or the last probe never reported back: let exactly one caller through
+            if (now >= c.openUntil()) {
+                Probe probe = new Probe(host);
+                Circuit probing = new Circuit(State.HALF_OPEN, c.consecutiveBlocks(), c.backoffMs(),
+                        now + probeTimeoutMs, probe);
+                if (ref.compareAndSet(c, probing)) {
+                    if (c.state() == State.HALF_OPEN) {
+                        log.warn("Probe for {} did not report within {} ms, sending another", host, probeTimeoutMs);
+                    } else {
+                        log.info("Circuit for {} half-open, sending probe request", host);
+                    }
+                    return probe;
+                }
+                continue;
+            }
+            long retryInSeconds = Math.max(1, (c.openUntil() - now) / 1000);
+            throw new ScraperBlockedException(
+                    "Amazon is blocking requests to " + host + ", retry in about " + retryInSeconds + "s");
+        }
+    }
+
+    public void recordSuccess(String host) {
+        AtomicReference<Circuit> ref = circuit(host);
+        Circuit previous = ref.getAndSet(closed());
+        if (previous.state() != State.CLOSED) {
+            log.info("Circuit for {} closed again", host);
+        }
+    }
+
+    public void recordBlocked(String host) {
+        AtomicReference<Circuit> ref = circuit(host);
+        long now = System.currentTimeMillis();
+        Circuit next = ref.updateAndGet(c -> {
+            int blocks = c.consecutiveBlocks() + 1;
+            if (c.state() == State.HALF_OPEN || c.state() == State.OPEN) {
+                // Probe failed: back off twice as long as last time
+                long backoff = Math.min(maxBackoffMs, Math.max(initialBackoffMs, c.backoffMs() * 2));
+                return new Circuit(State.OPEN, blocks, backoff, now + backoff, null);
+            }
+            if (blocks >= blockThreshold) {
+                return new Circuit(State.OPEN, blocks, initialBackoffMs, now + initialBackoffMs, null);
+            }
+            return new Circuit(State.CLOSED, blocks, c.backoffMs(), 0, null);
+        });
+        if (next.state() == State.OPEN) {
+            log.error("Circuit for {} OPEN after {} blocked pages, backing off {} ms", host,
+                    next.consecutiveBlocks(), next.backoffMs());
+        } else {
+            log.warn("Blocked page from {} ({} in a row)", host, next.consecutiveBlocks());
+        }
+    }
+
+    public State getState(String host) {
+        return circuit(host).get().state();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        circuits.forEach((host, ref) -> {
+            Circuit c = ref.get();
+            Map<String, Object> hostMetrics = new LinkedHashMap<>();
+            hostMetrics.put("state", c.state());
+            hostMetrics.put("consecutiveBlocks", c.consecutiveBlocks());
+            hostMetrics.put("backoffMs", c.backoffMs());
+            metrics.put(host, hostMetrics);
+        });
+        return metrics;
+    }
+
+    private AtomicReference<Circuit> circuit(String host) {
+        return circuits.computeIfAbsent(host == null ? "" : host.toLowerCase(), h -> new AtomicReference<>(closed()));
+    }
+
+    private Circuit closed() {
+        return new Circuit(State.CLOSED, 0, 0, 0, null);
+    }
+}
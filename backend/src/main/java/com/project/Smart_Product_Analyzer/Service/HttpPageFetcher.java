@@ -0,0 +1,106 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lightweight page fetcher used before falling back to a real browser.
+ * Most of what we read from Amazon is server-rendered, so a plain GET plus an HTML parse is
+ * usually enough and costs hundreds of milliseconds instead of seconds.
+ */
+@Slf4j
+@Service
+public class HttpPageFetcher {
+
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/122.0.0.0 Safari/537.36";
+
+    private final HttpClient httpClient;
+    private final RequestPacer requestPacer;
+    private final PageSnapshotStore snapshotStore;
+    private final ReplayServer replayServer;
+    private final boolean enabled;
+    private final Duration requestTimeout;
+
+    public HttpPageFetcher(RequestPacer requestPacer, PageSnapshotStore snapshotStore, ReplayServer replayServer,
+            @Value("${scraper.http-first.enabled:true}") boolean enabled,
+            @Value("${scraper.http-first.timeout-ms:5000}") long timeoutMs) {
+        this.requestPacer = requestPacer;
+        this.snapshotStore = snapshotStore;
+        this.replayServer = replayServer;
+        this.enabled = enabled;
+        this.requestTimeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Fetches and parses a page. Returns null on any transport error or non-200 status, so callers
+     * can fall back to Selenium without special-casing exceptions.
+     */
+    public Document fetch(String url) {
+        try {
+            // Plain fetches hit the same hosts as the browser, so they share its pacing
+            requestPacer.await(URI.create(url).getHost());
+            HttpRequest request = HttpRequest.newBuilder(URI.create(replayServer.route(url)))
+                    .timeout(requestTimeout)
+                    .header("User-Agent", USER_AGENT)
+                    .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+                    .header("Accept-Language", "en-US,en;q=0.9")
+                    .header("Accept-Encoding", "gzip")
+                    .GET()
+                    .build();
+
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            if (response.statusCode() != 200) {
+                log.debug("HTTP fetch of {} returned status {}", url, response.statusCode());
+                response.body().close();
+                return null;
+            }
+
+            byte[] body;
+            try (InputStream in = decode(response)) {
+                body = in.readAllBytes();
+            }
+            // Charset is sniffed from headers/meta by jsoup
+            Document document = Jsoup.parse(new ByteArrayInputStream(body), null, url);
+            if (snapshotStore.isRecording()) {
+                snapshotStore.save(url, new String(body, document.charset()));
+            }
+            return document;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            log.debug("HTTP fetch of {} failed: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    private InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+        if ("gzip".equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(response.body());
+        }
+        return response.body();
+    }
+}
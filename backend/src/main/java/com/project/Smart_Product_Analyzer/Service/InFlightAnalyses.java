@@ -0,0 +1,132 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Model.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight registry of running analyses, keyed by canonical input. The first caller for a
+ * key runs the pipeline; callers arriving while it runs, synchronous or streaming, attach to its
+ * {@link ProductBroadcast} instead of scraping and prompting the model again. @Cacheable covers
+ * everything after the first result, this covers the time until then.
+ * <p>
+ * Every caller gets its own copies of the products, and anything per caller (such as history) is
+ * up to the caller once its result is in.
+ */
+@Slf4j
+@Component
+public class InFlightAnalyses {
+
+    private final Map<String, ProductBroadcast> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder computations = new LongAdder();
+    private final LongAdder coalescedCalls = new LongAdder();
+    private final LongAdder coalescedStreams = new LongAdder();
+    private final LongAdder replacedCancelled = new LongAdder();
+
+    /**
+     * Runs {@code work} for the key unless an identical analysis is already running, in which case
+     * this waits for that one and returns a copy of its products.
+     */
+    public List<Product> call(String key, Supplier<List<Product>> work) {
+        ProductBroadcast broadcast = new ProductBroadcast();
+        ProductBroadcast running = register(key, broadcast);
+        if (running != null) {
+            coalescedCalls.increment();
+            log.info("Joining in-flight analysis for: {}", key);
+            try {
+                return running.subscribe().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        computations.increment();
+        broadcast.subscribe();
+        try (CancellationScope.Registration ignored = broadcast.scope().install()) {
+            List<Product> products = work.get();
+            broadcast.complete(products);
+            return products;
+        } catch (RuntimeException e) {
+            broadcast.fail(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, broadcast);
+        }
+    }
+
+    /**
+     * Streaming counterpart of {@link #call}: the emitter is attached to the running analysis for
+     * the key, or {@code work} is run with a new broadcast that the emitter listens to. Runs on the
+     * caller's thread. Returns this caller's copy of the final products, which completes
+     * exceptionally if the analysis fails.
+     */
+    public CompletableFuture<List<Product>> stream(String key, SseEmitter emitter, Consumer<ProductBroadcast> work) {
+        ProductBroadcast broadcast = new ProductBroadcast();
+        ProductBroadcast running = register(key, broadcast);
+        if (running != null) {
+            coalescedStreams.increment();
+            log.info("Attaching stream to in-flight analysis for: {}", key);
+            running.attach(emitter);
+            return running.result();
+        }
+
+        computations.increment();
+        broadcast.attach(emitter);
+        // Everything the work fans out to inherits the broadcast's scope, so it stops when the
+        // last client disconnects
+        try (CancellationScope.Registration ignored = broadcast.scope().install()) {
+            work.accept(broadcast);
+            // Work that forgot to close the broadcast would leave followers hanging
+            broadcast.complete();
+        } catch (RuntimeException e) {
+            if (broadcast.scope().isCancelled()) {
+                log.info("Analysis for {} cancelled, all clients disconnected", key);
+            }
+            broadcast.fail(e);
+        } finally {
+            inFlight.remove(key, broadcast);
+        }
+        return broadcast.result();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("computations", computations.sum());
+        metrics.put("coalescedCalls", coalescedCalls.sum());
+        metrics.put("coalescedStreams", coalescedStreams.sum());
+        metrics.put("replacedCancelled", replacedCancelled.sum());
+        return metrics;
+    }
+
+    /**
+     * Registers the broadcast for the key and returns null, or returns the analysis already
+     * running for it. One that was cancelled (all its clients left) may still be unwinding; new
+     * callers would only inherit its cancellation, so it is replaced instead of joined.
+     */
+    private ProductBroadcast register(String key, ProductBroadcast broadcast) {
+        while (true) {
+            ProductBroadcast running = inFlight.putIfAbsent(key, broadcast);
+            if (running == null)
+                return null;
+            if (!running.scope().isCancelled())
+                return running;
+            if (inFlight.replace(key, running, broadcast)) {
+                replacedCancelled.increment();
+                return null;
+            }
+        }
+    }
+}
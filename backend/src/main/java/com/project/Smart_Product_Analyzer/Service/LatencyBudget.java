@@ -0,0 +1,104 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking stages of an analysis (model calls, page scrapes) so that none of them can
+ * outlast the latency budget of the current {@link CancellationScope}.
+ * <p>
+ * Stages run on a pool of their own rather than taskExecutor: the analyses waiting on them
+ * usually are taskExecutor threads, and a stage queued behind its own caller would never start.
+ * Nothing blocks waiting for a free thread here, and concurrency is bounded by the browser pool
+ * and the LLM pool the stages use.
+ */
+@Slf4j
+@Component
+public class LatencyBudget {
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService stages = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "BudgetStage-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+    private final Executor stageExecutor = CancellationScope.propagate(stages);
+
+    private final LongAdder cancelledStages = new LongAdder();
+
+    /**
+     * Runs the stage in a child scope, waited on for the time left. At the deadline the stage is
+     * cancelled, which interrupts its browser, HTTP or model call, and null is returned. Without
+     * a budget the stage simply runs on the calling thread.
+     */
+    public <T> T run(Supplier<T> stage) {
+        CancellationScope scope = CancellationScope.current();
+        if (scope.remainingMillis() == Long.MAX_VALUE)
+            return stage.get();
+        if (scope.isOverBudget())
+            return null;
+
+        CancellationScope stageScope = scope.child();
+        try {
+            CompletableFuture<T> result;
+            try (CancellationScope.Registration ignored = stageScope.install()) {
+                result = CompletableFuture.supplyAsync(stage, stageExecutor);
+            }
+            T value = await(result);
+            if (!result.isDone()) {
+                log.info("Latency budget ran out during a stage, cancelling it");
+                cancelledStages.increment();
+                stageScope.cancel();
+            }
+            return value;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            stageScope.release();
+        }
+    }
+
+    /**
+     * Joins the future, but gives up (returning null) once the latency budget has run out.
+     */
+    public <T> T await(CompletableFuture<T> future) {
+        CancellationScope scope = CancellationScope.current();
+        long remaining = scope.remainingMillis();
+        if (remaining == Long.MAX_VALUE)
+            return future.join();
+        try {
+            return future.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            scope.markOverBudget();
+            return null;
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for analysis");
+        }
+    }
+
+    public long getCancelledStages() {
+        return cancelledStages.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stages.shutdownNow();
+    }
+}
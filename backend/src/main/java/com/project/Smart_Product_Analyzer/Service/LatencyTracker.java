@@ -0,0 +1,44 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of the most recent latencies of one pipeline stage, for percentile lookups.
+ * Recording is a synchronized array write; percentiles sort a copy, which is cheap at this size
+ * compared to the page loads being measured.
+ */
+public class LatencyTracker {
+
+    private final long[] window;
+    private int next;
+    private int size;
+
+    public LatencyTracker(int windowSize) {
+        this.window = new long[Math.max(1, windowSize)];
+    }
+
+    public synchronized void record(long latencyMs) {
+        window[next] = latencyMs;
+        next = (next + 1) % window.length;
+        size = Math.min(size + 1, window.length);
+    }
+
+    public synchronized int getSampleCount() {
+        return size;
+    }
+
+    /**
+     * Latency at the given percentile (0.0-1.0) of the window, or -1 without samples.
+     */
+    public long percentile(double percentile) {
+        long[] samples;
+        synchronized (this) {
+            if (size == 0)
+                return -1;
+            samples = Arrays.copyOf(window, size);
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(percentile * samples.length) - 1;
+        return samples[Math.max(0, Math.min(samples.length - 1, index))];
+    }
+}
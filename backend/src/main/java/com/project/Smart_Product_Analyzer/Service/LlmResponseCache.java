@@ -0,0 +1,345 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Config.PromptTemplate;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of model responses, so the same reviews or product title sent again
+ * (popular products, similar-product deep dives, retries) cost no tokens.
+ * <p>
+ * The key is the SHA-256 of model, template name and version, and the template values with
+ * whitespace normalized. Editing a prompt file changes its version, so old answers are not
+ * served for a new prompt. Responses live in a bounded in-memory LRU backed by one file per key
+ * under the cache directory; both tiers expire entries after the TTL and the disk tier drops its
+ * least recently used files when over its size limit. A file's modified time is when it was
+ * written, which the TTL runs from; its access time is bumped on every hit and orders eviction.
+ */
+@Slf4j
+@Component
+public class LlmResponseCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private record Entry(String response, long storedAt) {
+    }
+
+    /**
+     * Result of looking a prompt up: its key, and the cached response or null. Passed back to
+     * {@link #getOrCompute(Lookup, Supplier)} on a miss, so the prompt is not hashed twice.
+     */
+    public record Lookup(String key, String response) {
+        public boolean hit() {
+            return response != null;
+        }
+    }
+
+    private static final Lookup DISABLED = new Lookup(null, null);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    // Access-ordered, guarded by its own monitor
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    // Disk writes happen off the calling thread, one at a time
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "LlmCacheWriter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public LlmResponseCache(@Value("${ai.cache.enabled:true}") boolean enabled,
+            @Value("${ai.cache.dir:${java.io.tmpdir}/smart-product-analyzer/llm-cache}") String directory,
+            @Value("${ai.cache.ttl-ms:604800000}") long ttlMs,
+            @Value("${ai.cache.max-entries:1000}") int maxEntries,
+            @Value("${ai.cache.max-bytes:67108864}") long maxBytes) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+
+        if (enabled) {
+            try {
+                Files.createDirectories(this.directory);
+                deleteOrphanedWrites();
+                try (Stream<Path> files = Files.list(this.directory)) {
+                    diskBytes.set(files.mapToLong(this::sizeOf).sum());
+                }
+                log.info("LLM response cache at {} ({} bytes in use)", directory, diskBytes.get());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot initialise LLM response cache at " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Looks this prompt up in memory, then on disk. Does not count as a miss.
+     */
+    public Lookup lookup(String model, PromptTemplate template, Map<String, ?> values) {
+        if (!enabled)
+            return DISABLED;
+        String key = keyOf(model, template, values);
+        return new Lookup(key, find(key));
+    }
+
+    /**
+     * Returns the response of an earlier {@link #lookup}, or runs {@code call} and caches what it
+     * returns. Failures and blank responses are not cached.
+     */
+    public String getOrCompute(Lookup lookup, Supplier<String> call) {
+        if (!enabled)
+            return call.get();
+        if (lookup.hit())
+            return lookup.response();
+
+        // Another call may have stored it since the lookup; disk was already checked
+        String cached = fromMemory(lookup.key(), System.currentTimeMillis());
+        if (cached != null)
+            return cached;
+
+        misses.increment();
+        String response = call.get();
+        if (response != null && !response.isBlank())
+            store(lookup.key(), response);
+        return response;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        synchronized (memory) {
+            metrics.put("memoryEntries", memory.size());
+        }
+        metrics.put("diskBytes", diskBytes.get());
+        metrics.put("memoryHits", memoryHits.sum());
+        metrics.put("diskHits", diskHits.sum());
+        metrics.put("misses", misses.sum());
+        metrics.put("expirations", expirations.sum());
+        return metrics;
+    }
+
+    private String find(String key) {
+        long now = System.currentTimeMillis();
+        String cached = fromMemory(key, now);
+        if (cached != null)
+            return cached;
+
+        Path file = directory.resolve(key + ".txt");
+        try {
+            long storedAt = Files.getLastModifiedTime(file).toMillis();
+            if (now - storedAt > ttlMs) {
+                expirations.increment();
+                long size = sizeOf(file);
+                if (Files.deleteIfExists(file))
+                    diskBytes.addAndGet(-size);
+                return null;
+            }
+            String response = Files.readString(file, StandardCharsets.UTF_8);
+            diskHits.increment();
+            remember(key, new Entry(response, storedAt));
+            touchLater(key, now);
+            return response;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read cached LLM response {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private String fromMemory(String key, long now) {
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+            if (entry == null)
+                return null;
+            if (now - entry.storedAt() > ttlMs) {
+                memory.remove(key);
+                return null;
+            }
+            memoryHits.increment();
+        }
+        touchLater(key, now);
+        return entry.response();
+    }
+
+    // Keeps the file of a hot entry from being evicted, even while memory serves it
+    private void touchLater(String key, long now) {
+        writer.execute(() -> {
+            try {
+                Files.getFileAttributeView(directory.resolve(key + ".txt"), BasicFileAttributeView.class)
+                        .setTimes(null, FileTime.fromMillis(now), null);
+            } catch (NoSuchFileException e) {
+                // Evicted or not written yet
+            } catch (IOException e) {
+                log.debug("Failed to touch cached LLM response {}: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    private void store(String key, String response) {
+        long now = System.currentTimeMillis();
+        remember(key, new Entry(response, now));
+        writer.execute(() -> {
+            try {
+                write(key, response, now);
+            } catch (Exception e) {
+                log.warn("Failed to store LLM response {}: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    private void remember(String key, Entry entry) {
+        synchronized (memory) {
+            memory.put(key, entry);
+            Iterator<Map.Entry<String, Entry>> eldest = memory.entrySet().iterator();
+            while (memory.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void write(String key, String response, long storedAt) throws IOException {
+        Path file = directory.resolve(key + ".txt");
+        long previous = sizeOf(file);
+        // Write then rename so readers never see a half-written response
+        Path tmp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.writeString(tmp, response, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(tmp, FileTime.fromMillis(storedAt));
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        diskBytes.addAndGet(sizeOf(file) - previous);
+
+        if (diskBytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    private void evict() throws IOException {
+        List<Path> leastRecentFirst;
+        try (Stream<Path> files = Files.list(directory)) {
+            leastRecentFirst = files
+                    .filter(file -> file.getFileName().toString().endsWith(".txt"))
+                    .sorted(Comparator.comparingLong(this::lastAccessOf))
+                    .toList();
+        }
+        int evicted = 0;
+        for (Path file : leastRecentFirst) {
+            if (diskBytes.get() <= maxBytes * 9 / 10)
+                break;
+            long size = sizeOf(file);
+            if (Files.deleteIfExists(file)) {
+                diskBytes.addAndGet(-size);
+                evicted++;
+            }
+        }
+        log.info("Evicted {} cached LLM responses, {} bytes in use", evicted, diskBytes.get());
+    }
+
+    // Temp files left by a write that was cut short (e.g. the JVM was killed) are never renamed
+    private void deleteOrphanedWrites() throws IOException {
+        try (DirectoryStream<Path> orphans = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path orphan : orphans) {
+                Files.deleteIfExists(orphan);
+            }
+        }
+    }
+
+    private String keyOf(String model, PromptTemplate template, Map<String, ?> values) {
+        StringBuilder fingerprint = new StringBuilder()
+                .append(model).append('\n')
+                .append(template.getName()).append('@').append(template.getVersion()).append('\n');
+        // Sorted so the key doesn't depend on map order
+        new TreeMap<>(values).forEach((name, value) -> {
+            fingerprint.append(name).append('=');
+            if (value instanceof Collection<?> lines) {
+                for (Object line : lines) {
+                    fingerprint.append(normalize(String.valueOf(line))).append('\n');
+                }
+            } else {
+                fingerprint.append(normalize(String.valueOf(value)));
+            }
+            fingerprint.append('\u0000');
+        });
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Case is kept, the model may answer differently to it; runs of whitespace are not
+    private String normalize(String text) {
+        return WHITESPACE.matcher(text.strip()).replaceAll(" ");
+    }
+
+    private long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private long lastAccessOf(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).lastAccessTime().toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+    }
+}
@@ -0,0 +1,112 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Waits for a page to be usable instead of sleeping a fixed time after navigation.
+ * A page is ready once the DOM is parsed, the element we extract from is present, and either the
+ * load event fired or the network has been quiet for a short while. Robot check pages count as
+ * ready so the caller can detect them right away rather than waiting out the timeout.
+ */
+@Slf4j
+@Component
+public class PageReadiness {
+
+    public enum PageType {
+        PRODUCT("#productTitle"),
+        SEARCH("div[data-asin]"),
+        REVIEWS("[data-hook='review']");
+
+        private final String readySelector;
+
+        PageType(String readySelector) {
+            this.readySelector = readySelector;
+        }
+    }
+
+    // Returns [readyState, target present, resource entry count, robot check]
+    private static final String READY_PROBE = """
+            var d = document;
+            return [d.readyState,
+                    !!d.querySelector(arguments[0]),
+                    performance.getEntriesByType('resource').length,
+                    d.title.toLowerCase().indexOf('robot check') >= 0
+                        || !!d.querySelector("form[action*='validateCaptcha']")];
+            """;
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    private final Duration productTimeout;
+    private final Duration searchTimeout;
+    private final long networkQuietMs;
+
+    public PageReadiness(@Value("${scraper.readiness.product-timeout-ms:10000}") long productTimeoutMs,
+            @Value("${scraper.readiness.search-timeout-ms:8000}") long searchTimeoutMs,
+            @Value("${scraper.readiness.network-quiet-ms:500}") long networkQuietMs) {
+        this.productTimeout = Duration.ofMillis(productTimeoutMs);
+        this.searchTimeout = Duration.ofMillis(searchTimeoutMs);
+        this.networkQuietMs = networkQuietMs;
+    }
+
+    /**
+     * Blocks until the page is ready or the per-type timeout passes.
+     * Returns false on timeout; extraction is still attempted on whatever has loaded.
+     */
+    public boolean await(WebDriver driver, PageType type) {
+        Duration timeout = type == PageType.PRODUCT ? productTimeout : searchTimeout;
+        long start = System.currentTimeMillis();
+        NetworkIdleTracker network = new NetworkIdleTracker();
+
+        try {
+            new WebDriverWait(driver, timeout, POLL_INTERVAL)
+                    .ignoring(ClassCastException.class)
+                    .until(d -> isReady(d, type, network));
+            log.debug("{} page ready after {} ms", type, System.currentTimeMillis() - start);
+            return true;
+        } catch (TimeoutException e) {
+            log.warn("{} page not ready after {} ms, extracting anyway", type, timeout.toMillis());
+            return false;
+        }
+    }
+
+    private boolean isReady(WebDriver driver, PageType type, NetworkIdleTracker network) {
+        List<?> probe = (List<?>) ((JavascriptExecutor) driver).executeScript(READY_PROBE, type.readySelector);
+        String readyState = (String) probe.get(0);
+        boolean targetPresent = Boolean.TRUE.equals(probe.get(1));
+        long resourceCount = ((Number) probe.get(2)).longValue();
+        boolean robotCheck = Boolean.TRUE.equals(probe.get(3));
+
+        if (robotCheck)
+            return true;
+        if ("loading".equals(readyState) || !targetPresent)
+            return false;
+        return "complete".equals(readyState) || network.isQuiet(resourceCount);
+    }
+
+    /**
+     * Treats the network as idle once no new resource entries appeared for networkQuietMs.
+     */
+    private final class NetworkIdleTracker {
+        private long lastCount = -1;
+        private long lastChangeAt = System.currentTimeMillis();
+
+        private boolean isQuiet(long resourceCount) {
+            long now = System.currentTimeMillis();
+            if (resourceCount != lastCount) {
+                lastCount = resourceCount;
+                lastChangeAt = now;
+                return false;
+            }
+            return now - lastChangeAt >= networkQuietMs;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local, compressed store of the raw HTML of every product and search page we fetch, so
+ * extraction can be re-run (new selectors, backfills, debugging) without going back to Amazon.
+ * <p>
+ * Layout under the snapshot directory:
+ * <ul>
+ * <li>{@code blobs/<sha256 of html>.html.gz} - gzipped page content, stored once per distinct body</li>
+ * <li>{@code index/<sha256 of canonical url>/<fetch epoch ms>.ref} - blob hash and original URL</li>
+ * </ul>
+ * Blobs are read through a memory-mapped channel. When the blobs exceed the size limit the oldest
+ * ones are deleted together with the index entries pointing at them.
+ */
+@Slf4j
+@Component
+public class PageSnapshotStore {
+
+    public record Snapshot(String url, Instant fetchedAt, String html) {
+    }
+
+    private final boolean enabled;
+    private final boolean readOnly;
+    private final Path blobDir;
+    private final Path indexDir;
+    private final long maxBytes;
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    // Writes happen off the scraping thread, one at a time
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "PageSnapshotWriter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public PageSnapshotStore(@Value("${scraper.snapshots.enabled:false}") boolean enabled,
+            @Value("${scraper.snapshots.dir:${java.io.tmpdir}/smart-product-analyzer/snapshots}") String directory,
+            @Value("${scraper.snapshots.max-bytes:536870912}") long maxBytes,
+            @Value("${scraper.snapshots.read-only:${scraper.replay.enabled:false}}") boolean readOnly) {
+        this.enabled = enabled;
+        this.readOnly = readOnly;
+        this.blobDir = Paths.get(directory, "blobs");
+        this.indexDir = Paths.get(directory, "index");
+        this.maxBytes = maxBytes;
+
+        if (enabled) {
+            try {
+                Files.createDirectories(blobDir);
+                Files.createDirectories(indexDir);
+                try (Stream<Path> blobs = Files.list(blobDir)) {
+                    totalBytes.set(blobs.mapToLong(this::sizeOf).sum());
+                }
+                log.info("Page snapshot store at {} ({} bytes in use)", directory, totalBytes.get());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot initialise snapshot store at " + directory, e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * False while the store is only read, e.g. when it backs the replay server.
+     */
+    public boolean isRecording() {
+        return enabled && !readOnly;
+    }
+
+    /**
+     * Queues the page for storage. Never blocks or fails the scrape.
+     */
+    public void save(String url, String html) {
+        if (!isRecording() || html == null || html.isEmpty())
+            return;
+        long fetchedAt = System.currentTimeMillis();
+        writer.execute(() -> {
+            try {
+                write(url, html, fetchedAt);
+            } catch (Exception e) {
+                log.warn("Failed to store snapshot of {}: {}", url, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Latest stored snapshot of a page, by canonical URL.
+     */
+    public Optional<Snapshot> latest(String url) {
+        if (!enabled)
+            return Optional.empty();
+        Path urlDir = indexDir.resolve(sha256(AmazonUrls.canonicalize(url)));
+        if (!Files.isDirectory(urlDir))
+            return Optional.empty();
+
+        try (Stream<Path> refs = Files.list(urlDir)) {
+            List<Path> newestFirst = refs
+                    .sorted(Comparator.comparingLong(this::fetchTimeOf).reversed())
+                    .toList();
+            for (Path ref : newestFirst) {
+                List<String> lines = Files.readAllLines(ref, StandardCharsets.UTF_8);
+                Path blob = blobDir.resolve(lines.get(0) + ".html.gz");
+                if (Files.exists(blob)) {
+                    return Optional.of(new Snapshot(lines.get(1), Instant.ofEpochMilli(fetchTimeOf(ref)), readBlob(blob)));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read snapshot of {}: {}", url, e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    private void write(String url, String html, long fetchedAt) throws IOException {
+        byte[] raw = html.getBytes(StandardCharsets.UTF_8);
+        String blobHash = sha256(raw);
+        Path blob = blobDir.resolve(blobHash + ".html.gz");
+
+        if (!Files.exists(blob)) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(raw);
+            }
+            // Write then rename so readers never map a half-written blob
+            Path tmp = Files.createTempFile(blobDir, blobHash, ".tmp");
+            Files.write(tmp, compressed.toByteArray());
+            Files.move(tmp, blob, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            totalBytes.addAndGet(compressed.size());
+        } else {
+            // Same body seen again: refresh its age so eviction keeps it
+            Files.setLastModifiedTime(blob, FileTime.fromMillis(fetchedAt));
+        }
+
+        Path urlDir = indexDir.resolve(sha256(AmazonUrls.canonicalize(url)));
+        Files.createDirectories(urlDir);
+        Files.writeString(urlDir.resolve(fetchedAt + ".ref"), blobHash + "\n" + url, StandardCharsets.UTF_8);
+
+        if (totalBytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    private void evict() throws IOException {
+        List<Path> oldestFirst;
+        try (Stream<Path> blobs = Files.list(blobDir)) {
+            oldestFirst = blobs
+                    .sorted(Comparator.comparingLong(this::lastModifiedOf))
+                    .toList();
+        }
+        int evicted = 0;
+        for (Path blob : oldestFirst) {
+            if (totalBytes.get() <= maxBytes * 9 / 10)
+                break;
+            long size = sizeOf(blob);
+            if (Files.deleteIfExists(blob)) {
+                totalBytes.addAndGet(-size);
+                evicted++;
+            }
+        }
+        int refs = pruneIndex();
+        log.info("Evicted {} page snapshots and {} index entries, {} bytes in use", evicted, refs,
+                totalBytes.get());
+    }
+
+    // Deletes refs whose blob is gone (just evicted, or left over from an earlier run) and the
+    // URL directories left empty, so the index does not outgrow the blobs
+    private int pruneIndex() throws IOException {
+        int pruned = 0;
+        List<Path> urlDirs;
+        try (Stream<Path> dirs = Files.list(indexDir)) {
+            urlDirs = dirs.toList();
+        }
+        for (Path urlDir : urlDirs) {
+            List<Path> refs;
+            try (Stream<Path> files = Files.list(urlDir)) {
+                refs = files.toList();
+            }
+            int kept = 0;
+            for (Path ref : refs) {
+                String blobHash = firstLine(ref);
+                if (blobHash != null && Files.exists(blobDir.resolve(blobHash + ".html.gz"))) {
+                    kept++;
+                } else if (Files.deleteIfExists(ref)) {
+                    pruned++;
+                }
+            }
+            // Refs are only written on this (writer) thread, so nothing refills it meanwhile
+            if (kept == 0)
+                Files.deleteIfExists(urlDir);
+        }
+        return pruned;
+    }
+
+    private String firstLine(Path ref) {
+        try (BufferedReader reader = Files.newBufferedReader(ref, StandardCharsets.UTF_8)) {
+            return reader.readLine();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String readBlob(Path blob) throws IOException {
+        try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try (InputStream in = new GZIPInputStream(new ByteBufferInputStream(mapped))) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private long fetchTimeOf(Path ref) {
+        String name = ref.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.indexOf('.')));
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private long lastModifiedOf(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String sha256(String value) {
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(byte[] value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining())
+                return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Model.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Results of one in-flight analysis, fanned out to every caller attached to it. SSE clients that
+ * attach late first get the products already sent, then the rest as they come; synchronous
+ * callers wait on {@link #subscribe()} for the full list.
+ * <p>
+ * Products are snapshotted when sent and every subscriber gets its own copies, so neither the
+ * analysis nor a caller that flags its result affects what the others see. Sends happen outside
+ * the broadcast's monitor, so a slow client never holds up attaching, leaving or subscribing.
+ * <p>
+ * Subscribers are reference counted. When the last SSE client completes, times out or errors
+ * while the analysis is still running, its {@link CancellationScope} is cancelled. Synchronous
+ * callers cannot leave early, so they keep the analysis alive.
+ */
+@Slf4j
+public class ProductBroadcast {
+
+    // One SSE client. Its own monitor is held while sending to it, which keeps its products in order
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        // Guarded by the broadcast: index into sent of the next product, and whether the stream ended
+        int next;
+        boolean ended;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private final List<Product> sent = new ArrayList<>();
+    // Every client that has not left yet
+    private final Map<SseEmitter, Subscriber> attached = new IdentityHashMap<>();
+    private final CompletableFuture<List<Product>> result = new CompletableFuture<>();
+    private final CancellationScope scope = new CancellationScope();
+    private int syncSubscribers;
+    private boolean done;
+    private Throwable error;
+
+    public CancellationScope scope() {
+        return scope;
+    }
+
+    /**
+     * Registers a synchronous caller, which stays subscribed until the analysis ends.
+     */
+    public synchronized CompletableFuture<List<Product>> subscribe() {
+        syncSubscribers++;
+        return result();
+    }
+
+    public void attach(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        synchronized (this) {
+            attached.put(emitter, subscriber);
+        }
+        // Client gone (or finished): stop listening, and stop the work if nobody else is
+        emitter.onCompletion(() -> detach(emitter));
+        emitter.onTimeout(() -> detach(emitter));
+        emitter.onError(e -> detach(emitter));
+        deliver(subscriber);
+    }
+
+    public void send(Product product) {
+        List<Subscriber> subscribers;
+        synchronized (this) {
+            if (done)
+                return;
+            sent.add(copyOf(product));
+            subscribers = new ArrayList<>(attached.values());
+        }
+        subscribers.forEach(this::deliver);
+    }
+
+    private void detach(SseEmitter emitter) {
+        synchronized (this) {
+            Subscriber subscriber = attached.remove(emitter);
+            if (subscriber == null)
+                return;
+            subscriber.ended = true;
+            if (!attached.isEmpty() || syncSubscribers > 0 || done)
+                return;
+        }
+        log.info("Last client of an in-flight analysis disconnected, cancelling it");
+        scope.cancel();
+    }
+
+    /**
+     * Completes every attached stream. Products not sent yet are sent first, so a computation
+     * that only produces a final list still reaches its SSE followers.
+     */
+    public void complete(List<Product> products) {
+        List<Product> all;
+        synchronized (this) {
+            if (done)
+                return;
+            for (Product product : products) {
+                if (!sent.contains(product))
+                    sent.add(copyOf(product));
+            }
+            done = true;
+            all = new ArrayList<>(sent);
+        }
+        result.complete(all);
+        deliverToAll();
+    }
+
+    public void complete() {
+        complete(List.of());
+    }
+
+    public void fail(Throwable error) {
+        synchronized (this) {
+            if (done)
+                return;
+            done = true;
+            this.error = error;
+        }
+        result.completeExceptionally(error);
+        deliverToAll();
+    }
+
+    /**
+     * The final products, as copies of this caller's own.
+     */
+    public CompletableFuture<List<Product>> result() {
+        return result.thenApply(ProductBroadcast::copyAll);
+    }
+
+    private void deliverToAll() {
+        List<Subscriber> subscribers;
+        synchronized (this) {
+            subscribers = new ArrayList<>(attached.values());
+        }
+        subscribers.forEach(this::deliver);
+    }
+
+    // Sends the client what it has not had yet and ends its stream once the analysis is done
+    private void deliver(Subscriber subscriber) {
+        synchronized (subscriber) {
+            while (true) {
+                Product next = null;
+                Throwable failure;
+                synchronized (this) {
+                    if (subscriber.ended)
+                        return;
+                    if (subscriber.next < sent.size()) {
+                        next = sent.get(subscriber.next++);
+                    } else if (!done) {
+                        return;
+                    } else {
+                        subscriber.ended = true;
+                    }
+                    failure = error;
+                }
+                if (next == null) {
+                    end(subscriber.emitter, failure);
+                    return;
+                }
+                if (!trySend(subscriber.emitter, next)) {
+                    detach(subscriber.emitter);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void end(SseEmitter emitter, Throwable failure) {
+        try {
+            if (failure == null) {
+                emitter.complete();
+            } else {
+                emitter.completeWithError(failure);
+            }
+        } catch (Exception e) {
+            log.debug("Could not complete stream: {}", e.getMessage());
+        }
+    }
+
+    // A client that went away is dropped instead of failing the whole broadcast
+    private boolean trySend(SseEmitter emitter, Product product) {
+        try {
+            emitter.send(product);
+            return true;
+        } catch (Exception e) {
+            log.debug("Dropping stream subscriber: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static List<Product> copyAll(List<Product> products) {
+        List<Product> copies = new ArrayList<>(products.size());
+        products.forEach(product -> copies.add(copyOf(product)));
+        return copies;
+    }
+
+    private static Product copyOf(Product product) {
+        return product.toBuilder()
+                .pros(product.getPros() != null ? new ArrayList<>(product.getPros()) : null)
+                .cons(product.getCons() != null ? new ArrayList<>(product.getCons()) : null)
+                .build();
+    }
+}
@@ -2,6 +2,7 @@ package com.project.Smart_Product_Analyzer.Service;
 
 import com.project.Smart_Product_Analyzer.Exception.InvalidUrlException;
 import com.project.Smart_Product_Analyzer.Exception.ProductNotFound;
+import com.project.Smart_Product_Analyzer.Exception.ScraperBlockedException;
 import com.project.Smart_Product_Analyzer.Exception.ScrapingException;
 import com.project.Smart_Product_Analyzer.Model.Product;
 import lombok.extern.slf4j.Slf4j;
@@ -14,16 +15,23 @@ import com.project.Smart_Product_Analyzer.Model.ProductAnalysisRequest;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import com.project.Smart_Product_Analyzer.repository.ProductHistoryRepository;
 import com.project.Smart_Product_Analyzer.entity.ProductHistory;
 import com.project.Smart_Product_Analyzer.entity.User;
 import com.project.Smart_Product_Analyzer.repository.UserRepository;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.Authentication;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -36,6 +44,18 @@ public class ProductService {
     private final Executor taskExecutor;
     private final ProductHistoryRepository productHistoryRepository;
     private final UserRepository userRepository;
+    private final ReviewHarvester reviewHarvester;
+    private final AmazonUrlCanonicalizer urlCanonicalizer;
+    private final InFlightAnalyses inFlightAnalyses;
+    private final HedgedScraper hedgedScraper;
+    private final LatencyBudget latencyBudget;
+
+    // End-to-end timings of uncached analyses, e.g. for replay-mode load tests
+    private final ThroughputStats analyzeProductStats = new ThroughputStats();
+    private final ThroughputStats analyzeLinkStats = new ThroughputStats();
+    private final LongAdder speculativeScrapes = new LongAdder();
+    private final LongAdder cancelledSpeculativeScrapes = new LongAdder();
+    private final LongAdder partialResults = new LongAdder();
 
     @Autowired
     public ProductService(AmazonScraperService scraperService,
@@ -43,48 +63,87 @@ public class ProductService {
             AiService aiService,
             @Qualifier("taskExecutor") Executor taskExecutor,
             ProductHistoryRepository productHistoryRepository,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            ReviewHarvester reviewHarvester,
+            AmazonUrlCanonicalizer urlCanonicalizer,
+            InFlightAnalyses inFlightAnalyses,
+            HedgedScraper hedgedScraper,
+            LatencyBudget latencyBudget) {
         this.scraperService = scraperService;
         this.searchScraperService = searchScraperService;
         this.aiService = aiService;
         this.taskExecutor = taskExecutor;
         this.productHistoryRepository = productHistoryRepository;
         this.userRepository = userRepository;
+        this.reviewHarvester = reviewHarvester;
+        this.urlCanonicalizer = urlCanonicalizer;
+        this.inFlightAnalyses = inFlightAnalyses;
+        this.hedgedScraper = hedgedScraper;
+        this.latencyBudget = latencyBudget;
     }
 
-    @Cacheable("Product")
-    public List<Product> analyzeProduct(String productDescription) {
-        return analyzeProductInternal(productDescription, null);
+    /**
+     * Analyzes a product description. With a {@code budgetMs}, the products analyzed by then are
+     * returned flagged as partial; partial results are not cached.
+     */
+    @Cacheable(value = "Product", key = "#productDescription", unless = "#result.?[partial].size() > 0")
+    public List<Product> analyzeProduct(String productDescription, Long budgetMs) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            // Step 0: Check Cache (History)
+            List<Product> cachedProduct = checkHistoryCache(productDescription);
+            if (cachedProduct != null && !cachedProduct.isEmpty()) {
+                log.info("Found cached product analysis for: {}", productDescription);
+                success = true;
+                return cachedProduct;
+            }
+
+            // Concurrent identical requests share one run until @Cacheable has a result
+            List<Product> products = inFlightAnalyses.call(productKey(productDescription, budgetMs),
+                    () -> withBudget(budgetMs, () -> analyzeProductInternal(productDescription)));
+            saveHistory(productDescription, products, null);
+            success = true;
+            return products;
+        } finally {
+            analyzeProductStats.record(start, success);
+        }
     }
 
-    private List<Product> analyzeProductInternal(String productDescription, String username) {
+    private List<Product> analyzeProductInternal(String productDescription) {
         log.info("Starting optimized product analysis for description: {}", productDescription);
 
-        // Step 0: Check Cache (History)
-        List<Product> cachedProduct = checkHistoryCache(productDescription);
-        if (cachedProduct != null && !cachedProduct.isEmpty()) {
-            log.info("Found cached product analysis for: {}", productDescription);
-            return cachedProduct;
-        }
-
         try {
             // Reverted: Use AI for URL Generation as per user request
-            List<String> searchUrls = aiService.generateSearchUrls(productDescription);
+            List<String> searchUrls = latencyBudget.run(() -> aiService.generateSearchUrls(productDescription));
 
+            if (searchUrls == null) {
+                throw new ProductNotFound("Latency budget ran out before any search page was read.");
+            }
             if (searchUrls.isEmpty()) {
                 throw new ProductNotFound("AI failed to generate any valid search URLs.");
             }
 
             log.info("AI generated {} search URLs", searchUrls.size());
 
-            // Shallow Scrape & Filter First
+            // Shallow Scrape, deep scraping cards >= 4.0 stars as soon as they are read
+            CancellationScope scope = CancellationScope.current();
             List<Product> shallowProducts = new ArrayList<>();
             boolean searchSuccessful = false;
+            // Candidates run in child scopes, so cancelling the analysis stops them too
+            CandidatePipeline pipeline = new CandidatePipeline(5, 4.0, this::deepAnalyzeAsync);
 
             for (String searchUrl : searchUrls) {
+                if (scope.isOverBudget())
+                    break;
                 try {
                     log.info("Attempting to shallow scrape search URL: {}", searchUrl);
-                    shallowProducts = searchScraperService.scrapeSearchPage(searchUrl);
+                    shallowProducts = latencyBudget.run(
+                            () -> searchScraperService.scrapeSearchPage(searchUrl, pipeline::offer));
+                    if (shallowProducts == null) {
+                        shallowProducts = new ArrayList<>();
+                        break;
+                    }
 
                     if (!shallowProducts.isEmpty()) {
                         searchSuccessful = true;
@@ -92,90 +151,126 @@ public class ProductService {
                                 searchUrl);
                         break; // Stop after first successful scraping
                     }
+                } catch (ScraperBlockedException e) {
+                    // Circuit is open for this host, the remaining URLs would fail the same way
+                    pipeline.cancelAll();
+                    throw e;
                 } catch (Exception e) {
                     log.warn("Failed to shallow scrape search URL: {}. Error: {}", searchUrl, e.getMessage());
+                    // Cards from a failed search don't count, the next URL starts over
+                    pipeline.cancelAll();
                 }
             }
+            speculativeScrapes.add(pipeline.getStarted());
+            cancelledSpeculativeScrapes.add(pipeline.getCancelled());
 
+            if ((!searchSuccessful || shallowProducts.isEmpty()) && scope.wasOverBudget()) {
+                throw new ProductNotFound("Latency budget ran out before any search page was read.");
+            }
             if (!searchSuccessful || shallowProducts.isEmpty()) {
                 throw new ProductNotFound("No products found on search page from any generated URL.");
             }
 
-            // Filter: Rating >= 4.0 & Score
-            List<Product> candidates = shallowProducts.stream()
-                    .filter(p -> p.getRating() != null && p.getRating() >= 4.0)
-                    .sorted((p1, p2) -> Double.compare(p2.getRating(), p1.getRating())) // Sort by rating desc
-                    .limit(5) // Only take top 5 survivors
-                    .toList();
-
-            log.info("Filtered down to {} high-quality candidates (>= 4.0 stars) for deep analysis.",
-                    candidates.size());
-
-            if (candidates.isEmpty()) {
+            // Step 3: Deep Process Winners (Concurrent). The top 5 cards >= 4.0 stars are already running
+            List<Product> bestProducts;
+            if (pipeline.hasCandidates()) {
+                List<CompletableFuture<Product>> candidates = pipeline.results();
+                log.info("{} high-quality candidates (>= 4.0 stars) in deep analysis, {} speculative scrapes cancelled.",
+                        candidates.size(), pipeline.getCancelled());
+                bestProducts = rankAnalyzedProducts(candidates);
+            } else {
                 // Fallback: If no 4-star products, take top 3 of whatever we have
                 log.warn("No high-rated products found. Falling back to top 3 raw results.");
-                candidates = shallowProducts.stream().limit(3).toList();
+                List<String> candidateLinks = shallowProducts.stream().limit(3).map(Product::getUrl).toList();
+                bestProducts = findBestProducts(candidateLinks);
             }
 
-            // Extract Links for Deep Processing
-            List<String> candidateLinks = candidates.stream().map(Product::getUrl).toList();
-
-            // Step 3: Deep Process Winners (Concurrent)
-            List<Product> bestProducts = findBestProducts(candidateLinks);
-
             if (bestProducts.isEmpty()) {
                 throw new ProductNotFound("No suitable products found after analysis.");
             }
 
-            Product bestProduct = bestProducts.get(0);
-
-            saveHistory(productDescription, bestProduct, username);
+            if (scope.wasOverBudget()) {
+                bestProducts.forEach(p -> p.setPartial(true));
+            }
 
             return bestProducts;
 
 
+        } catch (ScraperBlockedException e) {
+            log.warn("Analysis aborted, scraper is blocked: {}", e.getMessage());
+            throw e;
+        } catch (CancellationException e) {
+            log.info("Analysis of '{}' cancelled", productDescription);
+            throw e;
         } catch (Exception e) {
             log.error("Error analyzing product: ", e);
             throw new ScrapingException("Failed to analyze product: " + e.getMessage(), e);
         }
     }
 
-    @Cacheable("Product")
-    public List<Product> analyzeLink(String link) {
-        log.info("Starting product analysis for URL: {}", link);
+    /**
+     * Analyzes a product link, which callers canonicalize first ({@link AmazonUrlCanonicalizer}) so
+     * tracking params and short links share one cache entry, and short links are resolved before
+     * the cache is consulted rather than while computing its key.
+     */
+    @Cacheable(value = "Product", key = "#link", unless = "#result.?[partial].size() > 0")
+    public List<Product> analyzeLink(String link, Long budgetMs) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            // Step 0: Check Cache
+            List<Product> cachedProduct = checkHistoryCache(link);
+            if (cachedProduct != null && !cachedProduct.isEmpty()) {
+                log.info("Found cached product analysis for link: {}", link);
+                success = true;
+                return cachedProduct;
+            }
 
-        // Step 0: Check Cache
-        List<Product> cachedProduct = checkHistoryCache(link);
-        if (cachedProduct != null && !cachedProduct.isEmpty()) {
-            log.info("Found cached product analysis for link: {}", link);
-            return cachedProduct;
+            List<Product> products = inFlightAnalyses.call(linkKey(link, budgetMs),
+                    () -> withBudget(budgetMs, () -> analyzeLinkInternal(link)));
+            saveHistory(link, products, null);
+            success = true;
+            return products;
+        } finally {
+            analyzeLinkStats.record(start, success);
         }
+    }
+
+    private List<Product> analyzeLinkInternal(String rawLink) {
+        String link = urlCanonicalizer.canonicalize(rawLink);
+        log.info("Starting product analysis for URL: {}", link);
 
         validateAmazonUrl(link);
 
         try {
             // Scrape the product
             // Scrape the main product
-            Product mainProduct = scraperService.scrapeAmazonOnUrl(link);
-            analyzeProductReviews(mainProduct);
+            Product mainProduct = analyzeMainProduct(link);
 
-            // Generate similar products
+            // Generate similar products, unless the budget went on the main product
+            CancellationScope scope = CancellationScope.current();
             List<Product> similarProducts = new ArrayList<>();
             try {
-                String keyword = aiService.extractProductKeyword(mainProduct.getName());
-                if (!keyword.isEmpty()) {
+                String keyword = scope.isOverBudget() ? ""
+                        : latencyBudget.run(() -> aiService.extractProductKeyword(mainProduct.getName()));
+                if (keyword != null && !keyword.isEmpty()) {
                     log.info("Extracted keyword for similar search: {}", keyword);
-                    List<String> searchUrls = aiService.generateSearchUrls(keyword);
+                    List<String> searchUrls = latencyBudget.run(() -> aiService.generateSearchUrls(keyword));
+                    if (searchUrls == null)
+                        searchUrls = List.of();
 
                     // We have Search URLs (e.g. amazon.in/s?k=...), we need to extract Product URLs
                     // from them first
                     List<String> productLinksForSimilar = new ArrayList<>();
 
                     for (String sUrl : searchUrls) {
+                        if (scope.isOverBudget())
+                            break;
                         try {
                             // Scrape the search page to get product links
-                            List<String> links = searchScraperService.scrapeAmazonOnUrl(sUrl);
-                            if (!links.isEmpty()) {
+                            List<String> links = latencyBudget.run(
+                                    () -> searchScraperService.scrapeAmazonOnUrl(sUrl));
+                            if (links != null && !links.isEmpty()) {
                                 productLinksForSimilar.addAll(links);
                             }
                             // If we have enough links, stop
@@ -188,7 +283,12 @@ public class ProductService {
 
                     // Scrape top 3 similar products from the found links
                     if (!productLinksForSimilar.isEmpty()) {
-                        List<String> limitedLinks = productLinksForSimilar.stream().distinct().limit(3).toList();
+                        List<String> limitedLinks = productLinksForSimilar.stream()
+                                .map(urlCanonicalizer::canonicalize)
+                                .distinct()
+                                .filter(similarLink -> !similarLink.equals(link))
+                                .limit(3)
+                                .toList();
                         log.info("Found {} product links for similar items, analyzing top 3...", limitedLinks.size());
                         List<Product> foundSimilar = findBestProducts(limitedLinks);
                         similarProducts.addAll(foundSimilar);
@@ -200,44 +300,6 @@ public class ProductService {
 
             log.info("Successfully analyzed product from link: {}", mainProduct.getName());
 
-            // Save history
-            // Save history
-            saveHistory(link, mainProduct, null); // analyzeLink is cached/sync so usually has context, but can pass
-                                                  // null to auto-detect if needed, OR overload.
-            // Wait, analyzeLink is called by Controller which has context. But wait,
-            // analyzeLinkStream calls THIS analyzeLink? No, it calls extract... logic.
-            // analyzeLink is a public method called by Controller (Sync).
-            // Let's check analyzeLink signature. It doesn't take username.
-            // I should overload or just pass null to let it detect from Context.
-
-            // However, analyzeProductStream calls analyzeProduct (Async) -> saveHistory
-            // (Async).
-            // So analyzeProduct needs to take username too? Or I should pass username to
-            // saveHistory inside analyzeProduct?
-            // "analyzeProduct" is public. I can't easily change signature without breaking
-            // controller.
-            // Better to OVERLOAD analyzeProduct or make a private helper.
-
-            // Actually, for now, let's just make saveHistory take (query, product,
-            // username).
-            // In analyzeLink (Sync), we pass null (it will find context).
-            // In analyzeLinkStream (Async), we pass username.
-
-            // Oops, I'm editing multiple places.
-            // Let's fix analyzeProduct (Sync, called by Async Stream) first.
-            // If analyzeProduct is called from Stream, it has NO Context.
-            // So analyzeProduct MUST accept username if we want it to work in Stream.
-            // But changing public API is annoying.
-            // Let's make an overloaded private method `analyzeProduct(desc, username)`?
-            // Or just pass the username to `analyzeProduct` if I change the signature.
-
-            // Simpler: Just update `analyzeLinkStream` to call `saveHistory` MANUALLY
-            // instead of inside `analyzeLink`?
-            // `analyzeLinkStream` calls `scraperService.scrape...` directly! It does NOT
-            // call `analyzeLink`.
-            // So `analyzeLink` is ONLY called by Sync Controller.
-            // So passing `null` here is fine (it picks up Context).
-
             List<Product> allProducts = new ArrayList<>();
             allProducts.add(mainProduct);
             // Filter out duplicates (if main product appears in search results)
@@ -247,15 +309,34 @@ public class ProductService {
                     allProducts.add(p);
                 }
             }
+            if (scope.wasOverBudget()) {
+                allProducts.forEach(p -> p.setPartial(true));
+            }
 
             return allProducts;
 
+        } catch (ScraperBlockedException e) {
+            log.warn("Link analysis aborted, scraper is blocked: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Error analyzing product from link: ", e);
             throw new ScrapingException("Failed to analyze product from link: " + e.getMessage(), e);
         }
     }
 
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("analyzeProduct", analyzeProductStats.getMetrics());
+        metrics.put("analyzeLink", analyzeLinkStats.getMetrics());
+        metrics.put("coalescing", inFlightAnalyses.getMetrics());
+        metrics.put("speculativeScrapes", speculativeScrapes.sum());
+        metrics.put("partialResults", partialResults.sum());
+        metrics.put("cancelledStages", latencyBudget.getCancelledStages());
+        metrics.put("cancelledSpeculativeScrapes", cancelledSpeculativeScrapes.sum());
+        metrics.put("hedging", hedgedScraper.getMetrics());
+        return metrics;
+    }
+
     private void validateAmazonUrl(String link) {
         if (link == null || link.trim().isEmpty()) {
             throw new InvalidUrlException("URL cannot be null or empty");
@@ -269,37 +350,57 @@ public class ProductService {
     private List<Product> findBestProducts(List<String> productLinks) {
         // Limit to top 10 products
         List<String> limitedLinks = productLinks.stream()
+                .map(urlCanonicalizer::canonicalize)
+                .distinct()
                 .limit(10)
                 .toList();
 
         log.info("Scraping {} products concurrently...", limitedLinks.size());
 
         List<CompletableFuture<Product>> futures = limitedLinks.stream()
-                .map(link -> CompletableFuture.supplyAsync(() -> {
-                    try {
-                        Product product = scraperService.scrapeAmazonOnUrl(link);
+                .map(this::deepAnalyzeAsync)
+                .toList();
+        return rankAnalyzedProducts(futures);
+    }
 
-                        // Check if rating is missing and default it
-                        if (product.getRating() == null) {
-                            product.setRating(0.0);
-                        }
+    /**
+     * Deep scrape plus review analysis of one product on the task executor, in the caller's scope.
+     * Completes with null on failure, or when that scope is cancelled before the next expensive step.
+     */
+    private CompletableFuture<Product> deepAnalyzeAsync(String link) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (CancellationScope.current().isCancelled())
+                    return null;
+                // Hedged: a hung page gets a second attempt instead of holding up the whole join
+                Product product = hedgedScraper.scrape(link);
+
+                // Check if rating is missing and default it
+                if (product.getRating() == null) {
+                    product.setRating(0.0);
+                }
 
-                        // Concurrent AI analysis of reviews
-                        analyzeProductReviews(product);
+                if (CancellationScope.current().isCancelled())
+                    return null;
+                // Concurrent AI analysis of reviews
+                analyzeProductReviews(product);
 
-                        return product;
-                    } catch (Exception e) {
-                        log.warn("Failed to scrape/analyze product at {}: {}", link, e.getMessage());
-                        return null; // Return null on failure
-                    }
-                }, taskExecutor))
-                .toList();
+                return product;
+            } catch (Exception e) {
+                log.warn("Failed to scrape/analyze product at {}: {}", link, e.getMessage());
+                return null; // Return null on failure
+            }
+        }, taskExecutor);
+    }
 
+    private List<Product> rankAnalyzedProducts(List<CompletableFuture<Product>> futures) {
         // Wait for all to complete
         List<Product> products = futures.stream()
-                .map(CompletableFuture::join)
-                .filter(Objects::nonNull) // Filter out failed scrapes
+                .map(latencyBudget::await)
+                .filter(Objects::nonNull) // Filter out failed scrapes and those past the budget
                 .collect(Collectors.toList());
+        // Products dropped by a cancellation must not be ranked and saved as the result
+        CancellationScope.current().throwIfCancelled();
 
         log.info("Successfully scraped and analyzed {} products", products.size());
 
@@ -314,7 +415,7 @@ public class ProductService {
             }
         }
 
-        log.info("Found {} valid products out of {} attempted", validProducts.size(), limitedLinks.size());
+        log.info("Found {} valid products out of {} attempted", validProducts.size(), futures.size());
 
         if (validProducts.isEmpty()) {
             return new ArrayList<>();
@@ -347,15 +448,16 @@ public class ProductService {
                 return;
             }
 
-            String reviewsText = String.join("\n", reviews);
-            log.info("Sending {} reviews to AI for analysis...", reviews.size());
-
-            // This is now internally concurrent if there are many reviews!
-            String aiResponse = aiService.getProductAnalysisResponse(reviewsText);
+            // Product page reviews go to the AI right away, review list pages follow as they load
+            log.info("Sending {} reviews to AI for analysis, harvesting more in the background...", reviews.size());
+            String aiResponse = aiService.getProductAnalysisResponse(
+                    reviewHarvester.harvest(product.getUrl(), reviews));
 
             log.info("Received AI analysis response for product: {}", product.getName());
             parseAnalysisResponse(product, aiResponse);
             log.info("Successfully analyzed product: {} with rating: {}", product.getName(), product.getRating());
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error analyzing product reviews for {}: ", product.getName(), e);
             setDefaultAnalysis(product);
@@ -459,6 +561,18 @@ public class ProductService {
         product.setRating(0.0);
     }
 
+    // History doubles as a cache, so it only gets complete analyses; the first product is the pick
+    private void saveHistory(String query, List<Product> products, String username) {
+        if (!products.isEmpty() && !products.get(0).isPartial())
+            saveHistory(query, products.get(0), username);
+    }
+
+    // Runs on whichever thread finished the shared analysis, so only the captured user counts
+    private void saveStreamedHistory(String query, List<Product> products, String username) {
+        if (username != null)
+            saveHistory(query, products, username);
+    }
+
     private void saveHistory(String query, Product product, String username) {
         try {
             // If username not provided (e.g. from async thread), try matching context
@@ -532,7 +646,8 @@ public class ProductService {
         taskExecutor.execute(() -> {
             try {
                 // Step 0: Check Cache (Global for Stream)
-                List<Product> cachedProduct = checkHistoryCache(request.getInput());
+                String input = urlCanonicalizer.canonicalize(request.getInput());
+                List<Product> cachedProduct = checkHistoryCache(input);
                 if (cachedProduct != null && !cachedProduct.isEmpty()) {
                     log.info("Streaming cached result for: {}", request.getInput());
                     for (Product p : cachedProduct) {
@@ -545,32 +660,21 @@ public class ProductService {
                     return;
                 }
 
+                Long budgetMs = request.getBudgetMs();
                 if (request.isUrl()) {
-                    analyzeLinkStream(request.getInput(), emitter, finalUsername);
+                    inFlightAnalyses.stream(linkKey(input, budgetMs), emitter,
+                            broadcast -> withBudget(budgetMs, () -> {
+                                analyzeLinkStream(input, broadcast);
+                                return null;
+                            }))
+                            .thenAccept(products -> saveStreamedHistory(input, products, finalUsername));
                 } else {
-                    List<Product> products = analyzeProductInternal(request.getInput(), finalUsername);
-                    // Should theoretically pass username to analyzeProduct too if we wanted history
-                    // there to work in async,
-                    // but analyzeProduct is currently synchronous so it's fine if called directly.
-                    // WAIT: analyzeProduct calls saveHistory which calls SecurityContext.
-                    // Since we are inside taskExecutor here, analyzeProduct WILL fail to save
-                    // history.
-                    // We should overload analyzeProduct or just manually save history here.
-
-                    // Actually, let's keep it simple. History saving for DESCRIPTION analysis via
-                    // stream might fail for now.
-                    // I'll focus on LINK analysis which is the main slow part.
-
-                    for (int i = 0; i < products.size(); i++) {
-                        Product p = products.get(i);
-                        if (i == 0) {
-                            p.setRecommended(true); // First product is always the main recommendation
-                        } else {
-                            p.setRecommended(false);
-                        }
-                        emitter.send(p);
-                    }
-                    emitter.complete();
+                    inFlightAnalyses.stream(productKey(input, budgetMs), emitter,
+                            broadcast -> withBudget(budgetMs, () -> {
+                                streamProductAnalysis(request.getInput(), broadcast);
+                                return null;
+                            }))
+                            .thenAccept(products -> saveStreamedHistory(input, products, finalUsername));
                 }
             } catch (Exception e) {
                 log.error("Error in streaming analysis", e);
@@ -583,25 +687,96 @@ public class ProductService {
         });
     }
 
-    private void analyzeLinkStream(String link, SseEmitter emitter, String username) {
+    private void streamProductAnalysis(String description, ProductBroadcast broadcast) {
+        List<Product> products = analyzeProductInternal(description);
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            if (i == 0) {
+                p.setRecommended(true); // First product is always the main recommendation
+            } else {
+                p.setRecommended(false);
+            }
+            broadcast.send(p);
+        }
+        broadcast.complete(products);
+    }
+
+    // Runs with different budgets give different results, so they don't coalesce
+    private String productKey(String description, Long budgetMs) {
+        return "product:" + urlCanonicalizer.canonicalize(description) + budgetSuffix(budgetMs);
+    }
+
+    private String linkKey(String link, Long budgetMs) {
+        return "link:" + urlCanonicalizer.canonicalize(link) + budgetSuffix(budgetMs);
+    }
+
+    private String budgetSuffix(Long budgetMs) {
+        return budgetMs == null ? "" : "@" + budgetMs + "ms";
+    }
+
+    /**
+     * Runs one analysis under the request's latency budget (none if null). Once it returns past
+     * the deadline, work still running for it is cancelled.
+     */
+    private <T> T withBudget(Long budgetMs, Supplier<T> work) {
+        CancellationScope scope = CancellationScope.current();
+        if (budgetMs != null)
+            scope.setDeadline(budgetMs);
+        T result = work.get();
+        if (scope.wasOverBudget()) {
+            partialResults.increment();
+            log.info("Latency budget of {} ms ran out, returned a partial result", budgetMs);
+            scope.cancel();
+        }
+        return result;
+    }
+
+    /**
+     * Scrapes the product page and analyzes its reviews, each within the latency budget. Without
+     * a page there is nothing to return; reviews still unanalyzed at the deadline leave the
+     * product with the default analysis.
+     */
+    private Product analyzeMainProduct(String link) {
+        Product scraped = latencyBudget.run(() -> scraperService.scrapeAmazonOnUrl(link));
+        if (scraped == null)
+            throw new ProductNotFound("Latency budget ran out before the product page was read.");
+        // A copy, so a stage abandoned at the deadline cannot change the product returned
+        Product analyzed = latencyBudget.run(() -> {
+            Product product = scraped.toBuilder().build();
+            analyzeProductReviews(product);
+            return product;
+        });
+        if (analyzed != null)
+            return analyzed;
+        setDefaultAnalysis(scraped);
+        return scraped;
+    }
+
+    private void analyzeLinkStream(String link, ProductBroadcast broadcast) {
         log.info("Starting streaming analysis for URL: {}", link);
         validateAmazonUrl(link);
 
         try {
             // 1. Scrape & Analyze MAIN PRODUCT
-            Product mainProduct = scraperService.scrapeAmazonOnUrl(link);
-            analyzeProductReviews(mainProduct);
+            Product mainProduct = analyzeMainProduct(link);
             mainProduct.setRecommended(true); // Mark as recommended/main
+            // Finished past the budget: flagged so it doesn't go into history
+            CancellationScope scope = CancellationScope.current();
+            if (scope.wasOverBudget())
+                mainProduct.setPartial(true);
 
             // EMIT MAIN PRODUCT IMMEDIATELY
             log.info("Emitting main product: {}", mainProduct.getName());
-            emitter.send(mainProduct);
+            broadcast.send(mainProduct);
 
-            // Save History Manually using the passed username
-            saveHistory(link, mainProduct, username);
+            // Past the budget the stream ends with the main product
+            if (scope.isOverBudget()) {
+                broadcast.complete();
+                return;
+            }
 
             // 2. Background: Find Similar Products
-            String keyword = aiService.extractProductKeyword(mainProduct.getName());
+            String keyword = latencyBudget.run(() -> aiService.extractProductKeyword(mainProduct.getName()));
 
             // Fallback if keyword extraction fails or returns empty
             if (keyword == null || keyword.trim().isEmpty()) {
@@ -619,14 +794,20 @@ public class ProductService {
                 log.info("Using keyword for similar search: {}", keyword);
 
                 // Reverted: Use AI for URL generation
-                List<String> searchUrls = aiService.generateSearchUrls(keyword);
+                String similarKeyword = keyword;
+                List<String> searchUrls = latencyBudget.run(() -> aiService.generateSearchUrls(similarKeyword));
+                if (searchUrls == null)
+                    searchUrls = List.of();
 
                 List<Product> allShallowSimilar = new ArrayList<>();
 
                 for (String sUrl : searchUrls) {
+                    CancellationScope.current().throwIfCancelled();
+                    if (scope.isOverBudget())
+                        break;
                     try {
-                        List<Product> shallow = searchScraperService.scrapeSearchPage(sUrl);
-                        if (!shallow.isEmpty()) {
+                        List<Product> shallow = latencyBudget.run(() -> searchScraperService.scrapeSearchPage(sUrl));
+                        if (shallow != null && !shallow.isEmpty()) {
                             allShallowSimilar.addAll(shallow);
                         }
                         if (allShallowSimilar.size() >= 15)
@@ -638,17 +819,15 @@ public class ProductService {
 
                 if (!allShallowSimilar.isEmpty()) {
                     // Filter Similar Products: Rating >= 4.0 & Score
+                    Set<String> seenSimilar = new HashSet<>();
                     List<Product> similarCandidates = allShallowSimilar.stream()
                             .filter(p -> p.getRating() != null && p.getRating() >= 4.0)
                             // Don't include the main product itself if found
                             .filter(p -> !p.getName().equalsIgnoreCase(mainProduct.getName()))
                             .sorted((p1, p2) -> Double.compare(p2.getRating(), p1.getRating()))
-                            .distinct() // Ensure products are unique by object identity/equals (might need more robust
-                                        // distinct if objects diff)
-                            // Actually distinct() uses equals(), usually OK if implemented, otherwise
-                            // stream
-                            // might have dups.
-                            // Let's rely on filter mainly.
+                            // Same product listed twice (sponsored + organic) or the main product itself
+                            .filter(p -> !urlCanonicalizer.canonicalize(p.getUrl()).equals(link))
+                            .filter(p -> seenSimilar.add(urlCanonicalizer.canonicalize(p.getUrl())))
                             .limit(4)
                             .toList();
 
@@ -684,10 +863,8 @@ public class ProductService {
                                             analyzeProductReviews(p);
 
                                             p.setRecommended(false);
-                                            synchronized (emitter) {
-                                                emitter.send(p);
-                                                log.info("Emitted similar product: {}", p.getName());
-                                            }
+                                            broadcast.send(p);
+                                            log.info("Emitted similar product: {}", p.getName());
                                         }
                                     } catch (Exception e) {
                                         log.warn("Failed to stream similar product: {}", candidate.getUrl(), e);
@@ -695,18 +872,23 @@ public class ProductService {
                                 }, taskExecutor))
                                 .toList();
 
-                        futures.forEach(CompletableFuture::join);
+                        // Similar products still running at the deadline are left out of the stream
+                        futures.forEach(latencyBudget::await);
+                        CancellationScope.current().throwIfCancelled();
                         log.info("All similar products processed.");
                     }
                 }
             }
 
-            emitter.complete();
+            broadcast.complete();
             log.info("Stream completed.");
 
+        } catch (CancellationException e) {
+            log.info("Streaming analysis of {} cancelled, no client is listening", link);
+            broadcast.fail(e);
         } catch (Exception e) {
             log.error("Error analyzing link stream", e);
-            emitter.completeWithError(e);
+            broadcast.fail(e);
         }
     }
 
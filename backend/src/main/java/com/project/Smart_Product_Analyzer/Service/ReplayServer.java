@@ -0,0 +1,188 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for Amazon used to benchmark the scraping pipeline with real Chrome and no network.
+ * Serves the pages recorded by {@link PageSnapshotStore} (scraper.snapshots.enabled must be on,
+ * and the store is read-only while replaying), with optional latency and error injection.
+ * <p>
+ * With scraper.replay.enabled, every fetch goes through {@link #route(String)}, which maps
+ * {@code https://www.amazon.in/dp/X} to {@code http://127.0.0.1:<port>/www.amazon.in/dp/X}.
+ * Root-relative links clicked or resolved inside a replayed page lose the host segment and are
+ * served from the default host. Pacing still applies per original host, so relax
+ * scraper.pacing.hosts for load tests.
+ */
+@Slf4j
+@Component
+public class ReplayServer {
+
+    private static final String DEFAULT_HOST = "www.amazon.in";
+
+    private final PageSnapshotStore snapshotStore;
+    private final boolean enabled;
+    private final int configuredPort;
+    private final long latencyMs;
+    private final long latencyJitterMs;
+    private final double errorRate;
+
+    private final LongAdder served = new LongAdder();
+    private final LongAdder missing = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private String baseUrl;
+
+    public ReplayServer(PageSnapshotStore snapshotStore,
+            @Value("${scraper.replay.enabled:false}") boolean enabled,
+            @Value("${scraper.replay.port:0}") int port,
+            @Value("${scraper.replay.latency-ms:0}") long latencyMs,
+            @Value("${scraper.replay.latency-jitter-ms:0}") long latencyJitterMs,
+            @Value("${scraper.replay.error-rate:0.0}") double errorRate) {
+        this.snapshotStore = snapshotStore;
+        this.enabled = enabled;
+        this.configuredPort = port;
+        this.latencyMs = latencyMs;
+        this.latencyJitterMs = latencyJitterMs;
+        this.errorRate = errorRate;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled)
+            return;
+        if (!snapshotStore.isEnabled()) {
+            log.warn("Replay mode is on but scraper.snapshots.enabled is off, every page will be a 404");
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), configuredPort), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start replay server", e);
+        }
+        // Injected latency sleeps, so each exchange gets its own cheap thread
+        handlers = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        log.info("Replay server serving recorded pages at {} (latency {}+{} ms, error rate {})", baseUrl,
+                latencyMs, latencyJitterMs, errorRate);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Maps an Amazon URL to its replay URL while replay mode is on; otherwise returns it unchanged.
+     */
+    public String route(String url) {
+        if (!enabled || url == null || isReplayUrl(url))
+            return url;
+        URI uri = URI.create(url);
+        String query = uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery();
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+        return baseUrl + "/" + uri.getHost() + path + query;
+    }
+
+    /**
+     * Maps a replay URL back to the Amazon URL it stands for, so products keep their real links.
+     */
+    public String unroute(String url) {
+        if (!isReplayUrl(url))
+            return url;
+        return originalUrl(URI.create(url));
+    }
+
+    public boolean isReplayUrl(String url) {
+        return enabled && url != null && url.startsWith(baseUrl + "/");
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("baseUrl", baseUrl);
+        metrics.put("served", served.sum());
+        metrics.put("missing", missing.sum());
+        metrics.put("injectedErrors", injectedErrors.sum());
+        return metrics;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            long delay = latencyMs + (latencyJitterMs > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterMs + 1) : 0);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.increment();
+                respond(exchange, 503, "Injected error");
+                return;
+            }
+
+            String url = originalUrl(exchange.getRequestURI());
+            Optional<PageSnapshotStore.Snapshot> snapshot = snapshotStore.latest(url);
+            if (snapshot.isEmpty()) {
+                missing.increment();
+                log.debug("No recorded page for {}", url);
+                respond(exchange, 404, "Not recorded: " + url);
+                return;
+            }
+            served.increment();
+            respond(exchange, 200, snapshot.get().html());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // "/www.amazon.in/dp/X?th=1" -> "https://www.amazon.in/dp/X?th=1"; "/dp/X" uses the default host
+    private String originalUrl(URI replayUri) {
+        String path = replayUri.getRawPath() == null ? "/" : replayUri.getRawPath();
+        String query = replayUri.getRawQuery() == null ? "" : "?" + replayUri.getRawQuery();
+        int slash = path.indexOf('/', 1);
+        String firstSegment = slash > 0 ? path.substring(1, slash) : path.substring(1);
+        if (firstSegment.contains(".")) {
+            return "https://" + firstSegment + (slash > 0 ? path.substring(slash) : "/") + query;
+        }
+        return "https://" + DEFAULT_HOST + path + query;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (server != null) {
+            server.stop(0);
+            handlers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Central per-host politeness scheduler shared by every scrape (browser and plain HTTP).
+ * Each host has a token bucket with a sustained rate and a burst size, implemented as a generic
+ * cell rate algorithm on a single atomic timestamp so permits are handed out lock-free.
+ * Callers get a future that completes when their permit starts; no worker sleeps on its own.
+ */
+@Slf4j
+@Component
+public class RequestPacer {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "RequestPacer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<String, HostBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, double[]> hostLimits;
+    private final double defaultRate;
+    private final int defaultBurst;
+    private final long maxJitterMs;
+
+    public RequestPacer(@Value("${scraper.pacing.rate-per-second:1.0}") double defaultRate,
+            @Value("${scraper.pacing.burst:3}") int defaultBurst,
+            @Value("${scraper.pacing.max-jitter-ms:300}") long maxJitterMs,
+            @Value("${scraper.pacing.hosts:}") String hostOverrides) {
+        this.defaultRate = defaultRate;
+        this.defaultBurst = defaultBurst;
+        this.maxJitterMs = maxJitterMs;
+        this.hostLimits = parseHostLimits(hostOverrides);
+    }
+
+    /**
+     * Reserves the next permit for a host. The returned future completes when the request may start.
+     */
+    public CompletableFuture<Void> acquire(String host) {
+        HostBucket bucket = buckets.computeIfAbsent(host == null ? "" : host.toLowerCase(), this::newBucket);
+        long delay = bucket.reserve();
+        if (maxJitterMs > 0) {
+            delay += ThreadLocalRandom.current().nextLong(maxJitterMs + 1);
+        }
+        bucket.recordWait(delay);
+
+        if (delay <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        log.debug("Pacing request to {} by {} ms", host, delay);
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        scheduler.schedule(() -> permit.complete(null), delay, TimeUnit.MILLISECONDS);
+        return permit;
+    }
+
+    /**
+     * Blocks until the next permit for a host starts. Unlike joining {@link #acquire(String)},
+     * the wait ends on interrupt, so a cancelled analysis or hedge does not sit out its slot.
+     * Callers that lease a browser wait here first, so no lease is held while paced.
+     */
+    public void await(String host) throws InterruptedException {
+        try {
+            acquire(host).get();
+        } catch (ExecutionException e) {
+            // Permits are only ever completed normally
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Permit counts and wait times per host, for the metrics endpoint.
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        buckets.forEach((host, bucket) -> {
+            long permits = bucket.permits.sum();
+            Map<String, Object> hostMetrics = new LinkedHashMap<>();
+            hostMetrics.put("ratePerSecond", bucket.ratePerSecond);
+            hostMetrics.put("burst", bucket.burst);
+            hostMetrics.put("permits", permits);
+            hostMetrics.put("avgWaitMs", permits == 0 ? 0 : bucket.totalWaitMs.sum() / permits);
+            hostMetrics.put("maxWaitMs", bucket.maxWaitMs.get());
+            metrics.put(host, hostMetrics);
+        });
+        return metrics;
+    }
+
+    private HostBucket newBucket(String host) {
+        double[] limits = hostLimits.get(host);
+        if (limits != null) {
+            return new HostBucket(limits[0], (int) limits[1]);
+        }
+        return new HostBucket(defaultRate, defaultBurst);
+    }
+
+    // Format: "www.amazon.in=0.5/3,www.amazon.com=1/2" (host=rate/burst)
+    private Map<String, double[]> parseHostLimits(String overrides) {
+        Map<String, double[]> limits = new ConcurrentHashMap<>();
+        if (overrides == null || overrides.isBlank())
+            return limits;
+        for (String entry : overrides.split(",")) {
+            try {
+                String[] hostAndLimit = entry.trim().split("=");
+                String[] rateAndBurst = hostAndLimit[1].split("/");
+                double rate = Double.parseDouble(rateAndBurst[0]);
+                int burst = rateAndBurst.length > 1 ? Integer.parseInt(rateAndBurst[1]) : defaultBurst;
+                limits.put(hostAndLimit[0].trim().toLowerCase(), new double[] { rate, burst });
+            } catch (Exception e) {
+                log.warn("Ignoring malformed pacing override: {}", entry);
+            }
+        }
+        return limits;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class HostBucket {
+        private final double ratePerSecond;
+        private final int burst;
+        // Emission interval between permits and how far ahead of schedule a burst may run
+        private final long intervalMs;
+        private final long toleranceMs;
+        // Theoretical arrival time (epoch ms) of the next permit
+        private final AtomicLong tat = new AtomicLong();
+
+        private final LongAdder permits = new LongAdder();
+        private final LongAdder totalWaitMs = new LongAdder();
+        private final AtomicLong maxWaitMs = new AtomicLong();
+
+        private HostBucket(double ratePerSecond, int burst) {
+            this.ratePerSecond = ratePerSecond;
+            this.burst = Math.max(1, burst);
+            this.intervalMs = Math.max(1, (long) (1000 / ratePerSecond));
+            this.toleranceMs = intervalMs * (this.burst - 1);
+        }
+
+        // Returns how long the caller must wait before starting
+        private long reserve() {
+            while (true) {
+                long now = System.currentTimeMillis();
+                long current = tat.get();
+                long start = Math.max(now, current - toleranceMs);
+                long next = Math.max(now, current) + intervalMs;
+                if (tat.compareAndSet(current, next)) {
+                    return start - now;
+                }
+            }
+        }
+
+        private void recordWait(long waitMs) {
+            permits.increment();
+            totalWaitMs.add(Math.max(0, waitMs));
+            maxWaitMs.accumulateAndGet(waitMs, Math::max);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Packs reviews into LLM batches by estimated token count rather than a fixed number of reviews,
+ * so short reviews share one call and long ones don't overflow the context.
+ * <p>
+ * Tokens are estimated locally: the larger of chars / 4 and words * 4 / 3, which is close to
+ * what BPE tokenizers give for English and errs high for text with long words or no spaces.
+ * The budget covers the reviews only, the prompt template comes on top.
+ */
+@Component
+public class ReviewBatcher {
+
+    // What the old count-based batching used, kept as the baseline for calls saved
+    static final int FIXED_BATCH_SIZE = 5;
+
+    private final int maxBatchTokens;
+    private final int maxReviewTokens;
+
+    private final LongAdder reviews = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder fixedBatches = new LongAdder();
+    private final LongAdder truncatedReviews = new LongAdder();
+    private final LongAdder packedTokens = new LongAdder();
+
+    public ReviewBatcher(@Value("${ai.batch.max-tokens:1500}") int maxBatchTokens,
+            @Value("${ai.batch.max-review-tokens:400}") int maxReviewTokens) {
+        this.maxBatchTokens = Math.max(1, maxBatchTokens);
+        // A single review must always fit into a batch on its own
+        this.maxReviewTokens = Math.max(1, Math.min(maxReviewTokens, this.maxBatchTokens));
+    }
+
+    /**
+     * Splits reviews into batches in their original order, each within the token budget. Reviews
+     * over the per-review limit are cut down first.
+     */
+    public List<List<String>> pack(List<String> input) {
+        List<List<String>> packed = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (String review : input) {
+            String text = truncate(review);
+            // +1 for the newline the reviews are joined with
+            int tokens = estimateTokens(text) + 1;
+            if (!current.isEmpty() && currentTokens + tokens > maxBatchTokens) {
+                packed.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(text);
+            currentTokens += tokens;
+            packedTokens.add(tokens);
+        }
+        if (!current.isEmpty())
+            packed.add(current);
+
+        reviews.add(input.size());
+        batches.add(packed.size());
+        fixedBatches.add(fixedBatchCount(input.size()));
+        return packed;
+    }
+
+    public int estimateTokens(String text) {
+        if (text.isEmpty())
+            return 0;
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean space = Character.isWhitespace(text.charAt(i));
+            if (!space && !inWord)
+                words++;
+            inWord = !space;
+        }
+        return Math.max((text.length() + 3) / 4, (words * 4 + 2) / 3);
+    }
+
+    /**
+     * Number of calls batches of five would have taken for the same reviews.
+     */
+    public int fixedBatchCount(int reviewCount) {
+        return (reviewCount + FIXED_BATCH_SIZE - 1) / FIXED_BATCH_SIZE;
+    }
+
+    public Map<String, Object> getMetrics() {
+        long batchCount = batches.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("maxBatchTokens", maxBatchTokens);
+        metrics.put("reviews", reviews.sum());
+        metrics.put("batches", batchCount);
+        metrics.put("callsSaved", fixedBatches.sum() - batchCount);
+        metrics.put("truncatedReviews", truncatedReviews.sum());
+        metrics.put("avgTokensPerBatch", batchCount == 0 ? 0 : packedTokens.sum() / batchCount);
+        return metrics;
+    }
+
+    // Keeps the start of an overlong review, cut at a word boundary
+    private String truncate(String review) {
+        if (estimateTokens(review) <= maxReviewTokens)
+            return review;
+        truncatedReviews.increment();
+        // Shrink by the estimate's own ratio until it fits
+        String text = review;
+        while (estimateTokens(text) > maxReviewTokens && text.length() > 1) {
+            int cut = (int) ((long) text.length() * maxReviewTokens / estimateTokens(text));
+            cut = Math.max(1, Math.min(cut, text.length() - 1));
+            int space = text.lastIndexOf(' ', cut);
+            text = text.substring(0, space > cut / 2 ? space : cut).trim();
+        }
+        return text + " ...";
+    }
+}
@@ -0,0 +1,198 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Config.WebDriverPool;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects more reviews than the product page shows by following the product-reviews/{ASIN}
+ * list pages. Pages are fetched in parallel and handed out as one future per page, so analysis
+ * can start on whichever batch arrives first while the rest are still loading.
+ */
+@Slf4j
+@Service
+public class ReviewHarvester {
+
+    private final HttpPageFetcher httpPageFetcher;
+    private final WebDriverPool webDriverPool;
+    private final RequestPacer requestPacer;
+    private final PageReadiness pageReadiness;
+    private final BlockDetector blockDetector;
+    private final HostCircuitBreaker circuitBreaker;
+    private final ReplayServer replayServer;
+    private final boolean enabled;
+    private final int maxPages;
+    private final int maxReviews;
+    private final boolean browserFallback;
+
+    // Own pool: callers block on these futures from taskExecutor threads
+    private final ExecutorService fetchers;
+
+    public ReviewHarvester(HttpPageFetcher httpPageFetcher, WebDriverPool webDriverPool,
+            RequestPacer requestPacer, PageReadiness pageReadiness, BlockDetector blockDetector,
+            HostCircuitBreaker circuitBreaker, ReplayServer replayServer,
+            @Value("${scraper.reviews.paginate:true}") boolean enabled,
+            @Value("${scraper.reviews.max-pages:3}") int maxPages,
+            @Value("${scraper.reviews.max-reviews:40}") int maxReviews,
+            @Value("${scraper.reviews.fetch-threads:4}") int fetchThreads,
+            @Value("${scraper.reviews.browser-fallback:false}") boolean browserFallback) {
+        this.httpPageFetcher = httpPageFetcher;
+        this.webDriverPool = webDriverPool;
+        this.requestPacer = requestPacer;
+        this.pageReadiness = pageReadiness;
+        this.blockDetector = blockDetector;
+        this.circuitBreaker = circuitBreaker;
+        this.replayServer = replayServer;
+        this.enabled = enabled;
+        this.maxPages = maxPages;
+        this.maxReviews = maxReviews;
+        this.browserFallback = browserFallback;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fetchers = Executors.newFixedThreadPool(Math.max(1, fetchThreads), r -> {
+            Thread t = new Thread(r, "ReviewHarvester-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Returns the reviews already scraped from the product page as the first (completed) batch,
+     * followed by one future per review list page. Later batches never repeat a review and stop
+     * once the review budget is spent; a failed page completes with an empty batch.
+     */
+    public List<CompletableFuture<List<String>>> harvest(String productUrl, List<String> firstPageReviews) {
+        List<CompletableFuture<List<String>>> batches = new ArrayList<>();
+        batches.add(CompletableFuture.completedFuture(firstPageReviews));
+
+        String asin = AmazonUrls.extractAsin(productUrl);
+        if (!enabled || asin == null || maxPages <= 0)
+            return batches;
+
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        seen.addAll(firstPageReviews);
+        AtomicInteger remaining = new AtomicInteger(maxReviews - firstPageReviews.size());
+        String host = URI.create(productUrl).getHost();
+        CancellationScope scope = CancellationScope.current();
+        Executor pageExecutor = CancellationScope.propagate(fetchers);
+
+        List<CompletableFuture<List<String>>> pages = new ArrayList<>();
+        for (int page = 1; page <= maxPages; page++) {
+            String pageUrl = "https://" + host + "/product-reviews/" + asin
+                    + "?reviewerType=all_reviews&pageNumber=" + page;
+            CompletableFuture<List<String>> fetch = CompletableFuture.supplyAsync(() -> {
+                scope.throwIfCancelled();
+                return takeNew(fetchPage(pageUrl, host), seen, remaining);
+            }, pageExecutor);
+            pages.add(fetch);
+            batches.add(fetch.exceptionally(e -> {
+                // A cancelled analysis must not read as a page that simply had no reviews
+                if (scope.isCancelled())
+                    throw new CancellationException("Analysis cancelled");
+                log.debug("Review page {} failed: {}", pageUrl, e.getMessage());
+                return List.of();
+            }));
+        }
+        // Pages still queued or loading are dropped when the analysis is cancelled. Unregistered
+        // once every page is done, so the scope stops holding on to them and their reviews
+        CancellationScope.Registration cancelPages = scope.onCancel(() -> pages.forEach(page -> page.cancel(true)));
+        CompletableFuture.allOf(pages.toArray(CompletableFuture[]::new))
+                .whenComplete((done, e) -> cancelPages.close());
+        return batches;
+    }
+
+    private List<String> fetchPage(String pageUrl, String host) {
+        // Skip pages we already know would be walled; an unfinished half-open probe is handed back
+        try (HostCircuitBreaker.Probe ignored = circuitBreaker.checkAllowed(host)) {
+            return readPage(pageUrl, host);
+        }
+    }
+
+    private List<String> readPage(String pageUrl, String host) {
+        Document document = httpPageFetcher.isEnabled() ? httpPageFetcher.fetch(pageUrl) : null;
+        if (document != null) {
+            if (!blockDetector.isBlocked(document)) {
+                circuitBreaker.recordSuccess(host);
+                List<String> reviews = extractReviews(document);
+                if (!reviews.isEmpty() || !browserFallback)
+                    return reviews;
+            } else if (!browserFallback) {
+                // Plain HTTP is the only way we read review pages, so its wall is the verdict
+                circuitBreaker.recordBlocked(host);
+            }
+        }
+        if (!browserFallback)
+            return List.of();
+
+        try (CancellationScope.Registration ignored = CancellationScope.current().interruptOnCancel()) {
+            // Paced before leasing, so the browser isn't held through the wait
+            requestPacer.await(host);
+            try (WebDriverPool.Lease lease = webDriverPool.lease()) {
+                WebDriver driver = lease.driver();
+                try {
+                    driver.get(replayServer.route(pageUrl));
+                    pageReadiness.await(driver, PageReadiness.PageType.REVIEWS);
+                    if (blockDetector.isBlocked(driver)) {
+                        circuitBreaker.recordBlocked(host);
+                        return List.of();
+                    }
+                    circuitBreaker.recordSuccess(host);
+                    return extractReviews(Jsoup.parse(driver.getPageSource(), pageUrl));
+                } catch (WebDriverException e) {
+                    lease.invalidate();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Review page " + pageUrl + " cancelled");
+        }
+    }
+
+    private List<String> extractReviews(Document document) {
+        for (String selector : AmazonSelectors.REVIEW_PAGE_BODY) {
+            List<String> reviews = document.select(selector).eachText().stream()
+                    .filter(AmazonSelectors::isValidReview)
+                    .map(String::trim)
+                    .toList();
+            if (!reviews.isEmpty())
+                return reviews;
+        }
+        return List.of();
+    }
+
+    private List<String> takeNew(List<String> reviews, Set<String> seen, AtomicInteger remaining) {
+        List<String> fresh = new ArrayList<>();
+        for (String review : reviews) {
+            if (!seen.add(review))
+                continue;
+            // Claim one slot of the shared budget per review
+            if (remaining.getAndDecrement() <= 0)
+                break;
+            fresh.add(review);
+        }
+        return fresh;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchers.shutdownNow();
+    }
+}
@@ -0,0 +1,151 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Model.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of deep-scraped products keyed by marketplace and ASIN, shared by every
+ * analysis path so a product that shows up as main product, similar product and search candidate
+ * is scraped once.
+ * <p>
+ * Fields age separately: name, image and reviews stay valid for reviews-ttl, the price only for
+ * price-ttl. An entry with a stale price is returned as {@link Lookup#priceFresh()} = false so the
+ * caller can refresh just the price. Stored and returned products are copies, because analysis
+ * overwrites {@code pros} with its own output.
+ */
+@Slf4j
+@Component
+public class ScrapedProductCache {
+
+    public record Lookup(Product product, boolean priceFresh) {
+    }
+
+    private record Entry(Product product, long scrapedAt, long priceAt) {
+    }
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long reviewsTtlMs;
+    private final long priceTtlMs;
+
+    // Access-ordered, guarded by its own monitor
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stalePriceHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public ScrapedProductCache(@Value("${scraper.product-cache.enabled:true}") boolean enabled,
+            @Value("${scraper.product-cache.max-entries:500}") int maxEntries,
+            @Value("${scraper.product-cache.reviews-ttl-ms:21600000}") long reviewsTtlMs,
+            @Value("${scraper.product-cache.price-ttl-ms:1800000}") long priceTtlMs) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.reviewsTtlMs = reviewsTtlMs;
+        this.priceTtlMs = priceTtlMs;
+    }
+
+    /**
+     * Looks up a product page. Returns null on a miss or when the cached reviews have expired.
+     */
+    public Lookup get(String url) {
+        String key = keyOf(url);
+        if (!enabled || key == null)
+            return null;
+
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && now - entry.scrapedAt() > reviewsTtlMs) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        boolean priceFresh = now - entry.priceAt() <= priceTtlMs;
+        (priceFresh ? hits : stalePriceHits).increment();
+        return new Lookup(copyOf(entry.product()), priceFresh);
+    }
+
+    public void put(String url, Product product) {
+        String key = keyOf(url);
+        if (!enabled || key == null || product == null)
+            return;
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            entries.put(key, new Entry(copyOf(product), now, now));
+            evictOverflow();
+        }
+    }
+
+    /**
+     * Replaces only the price of a cached product and restarts its price clock.
+     */
+    public void updatePrice(String url, String price) {
+        String key = keyOf(url);
+        if (!enabled || key == null)
+            return;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                Product updated = copyOf(entry.product());
+                updated.setPrice(price);
+                entries.put(key, new Entry(updated, entry.scrapedAt(), System.currentTimeMillis()));
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        synchronized (entries) {
+            metrics.put("size", entries.size());
+        }
+        metrics.put("hits", hits.sum());
+        metrics.put("stalePriceHits", stalePriceHits.sum());
+        metrics.put("misses", misses.sum());
+        metrics.put("evictions", evictions.sum());
+        metrics.put("expirations", expirations.sum());
+        return metrics;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    // Marketplace + ASIN (https://www.amazon.in/dp/X): the same ASIN is priced per marketplace
+    private String keyOf(String url) {
+        return url == null ? null : AmazonUrls.canonicalize(url);
+    }
+
+    private Product copyOf(Product product) {
+        return Product.builder()
+                .url(product.getUrl())
+                .name(product.getName())
+                .price(product.getPrice())
+                .imageUrl(product.getImageUrl())
+                .pros(product.getPros() != null ? new ArrayList<>(product.getPros()) : null)
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counts, latency and throughput of one operation, updated lock-free from any thread.
+ * Throughput is completed calls over the time between the first start and the last finish,
+ * which is what a replay benchmark run cares about.
+ */
+public class ThroughputStats {
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastFinish = new AtomicLong();
+
+    /**
+     * Records a call that started at {@code startNanos} (System.nanoTime) and has just finished.
+     */
+    public void record(long startNanos, boolean success) {
+        long now = System.nanoTime();
+        long elapsed = now - startNanos;
+        (success ? completed : failed).increment();
+        totalNanos.add(elapsed);
+        maxNanos.accumulateAndGet(elapsed, Math::max);
+        firstStart.accumulateAndGet(startNanos, Math::min);
+        lastFinish.accumulateAndGet(now, Math::max);
+    }
+
+    public Map<String, Object> getMetrics() {
+        long ok = completed.sum();
+        long calls = ok + failed.sum();
+        long window = lastFinish.get() - firstStart.get();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("completed", ok);
+        metrics.put("failed", failed.sum());
+        metrics.put("avgMs", calls == 0 ? 0 : totalNanos.sum() / calls / 1_000_000);
+        metrics.put("maxMs", maxNanos.get() / 1_000_000);
+        metrics.put("completedPerMinute", calls == 0 || window <= 0 ? 0.0 : ok * 60_000_000_000.0 / window);
+        return metrics;
+    }
+}
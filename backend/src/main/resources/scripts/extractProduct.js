@@ -0,0 +1,45 @@
+// Evaluates every product selector list in one round trip.
+// arguments: nameSelectors, priceSelectors, imageSelectors, reviewSelectors, maxCandidates
+var nameSelectors = arguments[0], priceSelectors = arguments[1],
+    imageSelectors = arguments[2], reviewSelectors = arguments[3], maxCandidates = arguments[4];
+
+function textOf(el) {
+    var t = el.innerText;
+    if (!t || !t.trim()) t = el.textContent;
+    return t ? t.trim() : '';
+}
+
+function firstText(selectors) {
+    for (var i = 0; i < selectors.length; i++) {
+        var el = document.querySelector(selectors[i]);
+        if (el) {
+            var t = textOf(el);
+            if (t) return t;
+        }
+    }
+    return null;
+}
+
+var image = null;
+for (var i = 0; i < imageSelectors.length && !image; i++) {
+    var img = document.querySelector(imageSelectors[i]);
+    if (img && img.getAttribute('src')) image = img.getAttribute('src');
+}
+
+// Review candidates are grouped per selector; filtering stays on the Java side
+var reviews = [];
+for (var j = 0; j < reviewSelectors.length; j++) {
+    var nodes = document.querySelectorAll(reviewSelectors[j]);
+    var texts = [];
+    for (var k = 0; k < nodes.length && texts.length < maxCandidates; k++) {
+        texts.push(textOf(nodes[k]));
+    }
+    reviews.push(texts);
+}
+
+return {
+    name: firstText(nameSelectors),
+    price: firstText(priceSelectors),
+    image: image,
+    reviews: reviews
+};
@@ -0,0 +1,41 @@
+// Reads every search result card in one round trip.
+// arguments: cardSelector, strictCardSelector, ratingSelector, priceSelector, reviewCountSelector
+var cardSelector = arguments[0], strictCardSelector = arguments[1], ratingSelector = arguments[2],
+    priceSelector = arguments[3], reviewCountSelector = arguments[4];
+
+function textOf(el) {
+    if (!el) return null;
+    var t = el.innerText;
+    if (!t || !t.trim()) t = el.textContent;
+    return t ? t.trim() : null;
+}
+
+var cards = document.querySelectorAll(cardSelector);
+if (cards.length === 0) cards = document.querySelectorAll(strictCardSelector);
+
+var result = [];
+for (var i = 0; i < cards.length; i++) {
+    var card = cards[i];
+    var asin = card.getAttribute('data-asin');
+    if (!asin || !asin.trim()) continue;
+
+    // Organic: h2 > a, Sponsored/Alternative: a > h2
+    var title = card.querySelector('h2');
+    if (!title) continue;
+    var link = title.querySelector('a');
+    if (!link && title.parentElement && title.parentElement.tagName.toLowerCase() === 'a') {
+        link = title.parentElement;
+    }
+    if (!link) continue;
+
+    var rating = card.querySelector(ratingSelector);
+    result.push({
+        asin: asin.trim(),
+        title: textOf(title),
+        href: link.href || link.getAttribute('href'),
+        rating: rating ? rating.getAttribute('aria-label') : null,
+        price: textOf(card.querySelector(priceSelector)),
+        reviewCount: textOf(card.querySelector(reviewCountSelector))
+    });
+}
+return result;
@@ -0,0 +1,93 @@
+package com.project.Smart_Product_Analyzer.Config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the old prompt path (read the file, then a String.replace per placeholder, on every
+ * call) with rendering a compiled {@link PromptTemplate}. Both sides use the same classpath file,
+ * and must produce the same prompt.
+ * <pre>
+ * mvn test -Dtest=PromptRenderBenchmarkTest -Dbenchmark.prompts=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.prompts", matches = "true")
+class PromptRenderBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PromptRenderBenchmarkTest.class);
+    private static final int ITERATIONS = 2_000;
+    private static final List<String> LINES = Collections.nCopies(20,
+            "Sample review text that is about as long as a typical Amazon review line.");
+
+    @Test
+    void compiledRenderMatchesLoadAndReplace() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath:prompts/*.txt");
+        assertTrue(resources.length > 0, "No prompt files on the classpath");
+        for (Resource resource : resources) {
+            PromptTemplate template = PromptTemplate.compile(resource.getFilename(), read(resource));
+            Map<String, Object> values = new HashMap<>();
+            template.getPlaceholders().forEach((placeholder, type) -> values.put(placeholder,
+                    type == PromptTemplate.Type.LINES ? LINES : String.join("\n", LINES)));
+
+            String replaced = null;
+            String rendered = null;
+            long legacyNanos = 0;
+            long compiledNanos = 0;
+            // First round warms up, second is reported
+            for (int round = 0; round < 2; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    replaced = loadAndReplace(resource, template, values);
+                }
+                legacyNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    rendered = template.render(values);
+                }
+                compiledNanos = System.nanoTime() - start;
+            }
+
+            assertEquals(replaced, rendered, "Paths disagree on " + template.getName());
+            log.info("{}: load+replace {} us/op, compiled render {} us/op, speedup {}x", template.getName(),
+                    legacyNanos / ITERATIONS / 1_000.0, compiledNanos / ITERATIONS / 1_000.0,
+                    String.format("%.1f", (double) legacyNanos / Math.max(1, compiledNanos)));
+        }
+    }
+
+    private static String loadAndReplace(Resource resource, PromptTemplate template, Map<String, Object> values)
+            throws IOException {
+        String prompt = read(resource);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            String placeholder = template.getPlaceholders().get(entry.getKey()) == PromptTemplate.Type.LINES
+                    ? "{" + entry.getKey() + ":lines}"
+                    : "{" + entry.getKey() + "}";
+            prompt = prompt.replace(placeholder,
+                    entry.getValue() instanceof String text ? text : String.join("\n", LINES));
+        }
+        return prompt;
+    }
+
+    private static String read(Resource resource) throws IOException {
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            return FileCopyUtils.copyToString(reader);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.project.Smart_Product_Analyzer.Config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PromptTemplateTest {
+
+    @Test
+    void placeholdersAreFoundWithTheirTypes() {
+        PromptTemplate template = PromptTemplate.compile("test.txt",
+                "Reviews:\n{reviews:lines}\nProduct: {name} ({name:text})");
+
+        assertEquals(Map.of("reviews", PromptTemplate.Type.LINES, "name", PromptTemplate.Type.TEXT),
+                template.getPlaceholders());
+        assertEquals("test.txt", template.getName());
+    }
+
+    @Test
+    void renderFillsTextAndJoinsLines() {
+        PromptTemplate template = PromptTemplate.compile("test.txt", "Reviews:\n{reviews:lines}\nFor {name}.");
+
+        String prompt = template.render(Map.of("reviews", List.of("Great", "Loud fan"), "name", "Laptop"));
+
+        assertEquals("Reviews:\nGreat\nLoud fan\nFor Laptop.", prompt);
+        assertEquals("Reviews:\n\nFor Laptop.",
+                template.render(Map.of("reviews", List.of(), "name", "Laptop")));
+    }
+
+    @Test
+    void renderMatchesStringReplaceOnTheSameSource() {
+        String source = "Search for {query} on {query}, then {query}.";
+        PromptTemplate template = PromptTemplate.compile("test.txt", source);
+
+        assertEquals(source.replace("{query}", "earbuds"), template.render("query", "earbuds"));
+    }
+
+    @Test
+    void otherBracesAreLiteral() {
+        String source = "Reply as JSON: {\"pros\": [], \"cons\": []} {not a placeholder} {x:numbers}";
+        PromptTemplate template = PromptTemplate.compile("test.txt", source);
+
+        assertEquals(Map.of(), template.getPlaceholders());
+        assertEquals(source, template.render(Map.of()));
+    }
+
+    @Test
+    void placeholderUsedWithTwoTypesIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PromptTemplate.compile("test.txt", "{reviews} and {reviews:lines}"));
+    }
+
+    @Test
+    void missingOrMistypedValuesAreRejected() {
+        PromptTemplate template = PromptTemplate.compile("test.txt", "{reviews:lines} / {name}");
+
+        assertThrows(IllegalArgumentException.class, () -> template.render(Map.of("reviews", List.of("Good"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> template.render(Map.of("reviews", "Good", "name", "Phone")));
+        assertThrows(IllegalArgumentException.class,
+                () -> template.render(Map.of("reviews", List.of(1, 2), "name", "Phone")));
+    }
+
+    @Test
+    void versionChangesOnlyWithTheSource() {
+        String source = "Keywords for {input}";
+
+        assertEquals(PromptTemplate.compile("a.txt", source).getVersion(),
+                PromptTemplate.compile("b.txt", source).getVersion());
+        assertNotEquals(PromptTemplate.compile("a.txt", source).getVersion(),
+                PromptTemplate.compile("a.txt", source + ".").getVersion());
+        assertEquals(12, PromptTemplate.compile("a.txt", source).getVersion().length());
+    }
+}
@@ -0,0 +1,60 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Model.Product;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AmazonSearchPageScraperTest {
+
+    private final AmazonSearchPageScraper scraper = new AmazonSearchPageScraper(null, null, null, null, null,
+            null, null, null, null, new ReplayServer(null, false, 0, 0, 0, 0.0));
+
+    @Test
+    void cardWithoutLinkDoesNotHideALaterCardForTheSameAsin() {
+        // Amazon repeats an ASIN in a widget before its real result card
+        String html = "<div data-asin='B000000001'><h2>Widget, no link</h2></div>"
+                + card("B000000001", "Real result")
+                + card("B000000002", "Other product");
+
+        List<Product> products = extract(html);
+
+        assertEquals(List.of("Real result", "Other product"), products.stream().map(Product::getName).toList());
+        assertEquals("https://www.amazon.in/dp/B000000001", products.get(0).getUrl());
+    }
+
+    @Test
+    void sameAsinIsExtractedOnce() {
+        String html = card("B000000001", "First") + card("B000000001", "Sponsored copy");
+
+        List<Product> products = extract(html);
+
+        assertEquals(1, products.size());
+        assertEquals("First", products.get(0).getName());
+    }
+
+    @Test
+    void linksResolveAgainstTheSearchPageHost() {
+        List<Product> products = extract("https://www.amazon.com/s?k=headphones", card("B000000003", "Headphones"));
+
+        assertEquals("https://www.amazon.com/dp/B000000003", products.get(0).getUrl());
+    }
+
+    private List<Product> extract(String body) {
+        return extract("https://www.amazon.in/s?k=phone", body);
+    }
+
+    // Fetched and snapshot pages are both parsed with their URL as the base URI
+    private List<Product> extract(String url, String body) {
+        return scraper.extractProductsFromHtml(Jsoup.parse("<html><body>" + body + "</body></html>", url), card -> {
+        });
+    }
+
+    private static String card(String asin, String title) {
+        return "<div data-asin='" + asin + "'><h2><a href='/Some-Slug/dp/" + asin + "/ref=sr_1_1'>" + title
+                + "</a></h2><span aria-label='4.3 out of 5 stars'></span></div>";
+    }
+}
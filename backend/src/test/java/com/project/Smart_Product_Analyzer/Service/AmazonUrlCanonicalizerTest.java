@@ -0,0 +1,61 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AmazonUrlCanonicalizerTest {
+
+    private final AmazonUrlCanonicalizer canonicalizer = new AmazonUrlCanonicalizer(3000, 100, 1);
+
+    @AfterEach
+    void shutdown() {
+        canonicalizer.shutdown();
+    }
+
+    @Test
+    void productLinkVariantsShareOneCanonicalForm() {
+        String canonical = "https://www.amazon.in/dp/B0CHX1W1XY";
+
+        assertEquals(canonical, canonicalizer.canonicalize(
+                "https://www.amazon.in/Apple-iPhone-15-128-GB/dp/B0CHX1W1XY/ref=sr_1_1?crid=2&th=1"));
+        assertEquals(canonical, canonicalizer.canonicalize("  https://m.amazon.in/gp/product/B0CHX1W1XY  "));
+        assertEquals(canonical, canonicalizer.canonicalize("https://amazon.in/product-reviews/B0CHX1W1XY/"));
+        assertTrue(canonicalizer.sameProduct(canonical, "https://smile.amazon.in/dp/B0CHX1W1XY?psc=1"));
+    }
+
+    @Test
+    void marketplacesStayDistinct() {
+        assertFalse(canonicalizer.sameProduct("https://www.amazon.in/dp/B0CHX1W1XY",
+                "https://www.amazon.com/dp/B0CHX1W1XY"));
+    }
+
+    @Test
+    void searchLinksKeepOnlyTheParametersThatChangeThePage() {
+        assertEquals("https://www.amazon.in/s?k=headphones&page=2",
+                canonicalizer.canonicalize("https://www.amazon.in/s?page=2&crid=X&k=headphones&ref=nb_sb_noss"));
+    }
+
+    @Test
+    void descriptionsAreOnlyTrimmed() {
+        assertEquals("wireless earbuds under 2000", canonicalizer.canonicalize("  wireless earbuds under 2000 "));
+        assertNull(canonicalizer.canonicalize(null));
+    }
+
+    @Test
+    void onlyRealMarketplaceHostsAreAmazon() {
+        assertTrue(AmazonUrls.isMarketplaceHost("www.amazon.in"));
+        assertTrue(AmazonUrls.isMarketplaceHost("AMAZON.CO.UK"));
+        assertTrue(AmazonUrls.isMarketplaceHost("m.amazon.com.au"));
+
+        assertFalse(AmazonUrls.isMarketplaceHost("amazon.attacker.com"));
+        assertFalse(AmazonUrls.isMarketplaceHost("www.amazon.com.attacker.net"));
+        assertFalse(AmazonUrls.isMarketplaceHost("notamazon.com"));
+        assertFalse(AmazonUrls.isMarketplaceHost("amzn.to"));
+        assertFalse(AmazonUrls.isMarketplaceHost(null));
+    }
+}
@@ -0,0 +1,124 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Service.BatchAnalysisMerger.BatchResult;
+import com.project.Smart_Product_Analyzer.Service.BatchAnalysisMerger.MergedAnalysis;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BatchAnalysisMergerTest {
+
+    private final BatchAnalysisMerger merger = new BatchAnalysisMerger(0.5, 6);
+
+    @Test
+    void singleBatchIsParsedFromTheModelFormat() {
+        String summary = """
+                **PROS:-**
+                - Great sound quality
+                2. [Comfortable fit]
+                * Long battery life
+                CONS:- No cons found
+                VERDICT:- Worth buying for the price.
+                RATING:- 8.25""";
+
+        MergedAnalysis merged = merger.merge(List.of(new BatchResult(summary, 12)));
+
+        assertEquals(List.of("Great sound quality", "Comfortable fit", "Long battery life"), merged.pros());
+        assertEquals(List.of(), merged.cons());
+        assertEquals("Worth buying for the price.", merged.verdict());
+        assertEquals(8.25, merged.rating());
+    }
+
+    @Test
+    void samePointInOtherWordsIsMergedAndRankedByReviews() {
+        MergedAnalysis merged = merger.merge(List.of(
+                new BatchResult(analysis(List.of("Comfortable fit", "Great sound quality"),
+                        List.of("Battery drains fast"), "Good", "8"), 10),
+                new BatchResult(analysis(List.of("The sound quality is great", "Cheap price"),
+                        List.of("Battery lasts long only on low volume"), "Good", "8"), 5)));
+
+        // 15 reviews back the sound, 10 the fit, 5 the price
+        assertEquals(List.of("Great sound quality", "Comfortable fit", "Cheap price"), merged.pros());
+        // Sharing only "battery" is not enough to be the same point
+        assertEquals(List.of("Battery drains fast", "Battery lasts long only on low volume"), merged.cons());
+        assertEquals(1L, merger.getMetrics().get("mergedDuplicates"));
+    }
+
+    @Test
+    void equalSupportKeepsFirstSeenOrder() {
+        MergedAnalysis merged = merger.merge(List.of(
+                new BatchResult(analysis(List.of("Sturdy build", "Bright screen"), List.of(), "Ok", "7"), 4),
+                new BatchResult(analysis(List.of("Fast charging"), List.of(), "Ok", "7"), 4)));
+
+        assertEquals(List.of("Sturdy build", "Bright screen", "Fast charging"), merged.pros());
+    }
+
+    @Test
+    void ratingIsWeightedByReviewCount() {
+        MergedAnalysis merged = merger.merge(List.of(
+                new BatchResult(analysis(List.of("Loud"), List.of(), "Great", "9.0"), 30),
+                new BatchResult(analysis(List.of(), List.of("Flimsy"), "Poor", "3.0"), 10),
+                // Out of range, so it doesn't count
+                new BatchResult(analysis(List.of("Cheap"), List.of(), "Fine", "15"), 100)));
+
+        assertEquals(7.5, merged.rating(), 1e-9);
+        // The batch rated 9 is nearest 7.5
+        assertEquals("Great", merged.verdict());
+    }
+
+    @Test
+    void emptyBatchStillCountsAsOneReview() {
+        MergedAnalysis merged = merger.merge(List.of(
+                new BatchResult(analysis(List.of("Loud"), List.of(), "Great", "9"), 0),
+                new BatchResult(analysis(List.of("Loud"), List.of(), "Meh", "5"), 1)));
+
+        assertEquals(7.0, merged.rating(), 1e-9);
+    }
+
+    @Test
+    void missingRatingsAndVerdictsFallBack() {
+        MergedAnalysis merged = merger.merge(List.of(new BatchResult("PROS:-\n- Loud\nCONS:-\n- Heavy", 5)));
+
+        assertNull(merged.rating());
+        assertEquals("No verdict available.", merged.verdict());
+        assertEquals("PROS:-\n- Loud\nCONS:-\n- Heavy\nVERDICT:-Decide yourself\nRATING:-",
+                merged.format("Decide yourself"));
+    }
+
+    @Test
+    void unparseableBatchesAreSkipped() {
+        assertNull(merger.merge(List.of(new BatchResult("Sorry, I can't help with that.", 5),
+                new BatchResult(null, 5))));
+
+        MergedAnalysis merged = merger.merge(List.of(new BatchResult("Sorry, I can't help with that.", 5),
+                new BatchResult(analysis(List.of("Loud"), List.of(), "Good", "7"), 5)));
+
+        assertEquals(List.of("Loud"), merged.pros());
+        assertEquals(3L, merger.getMetrics().get("unparsedBatches"));
+        assertEquals(1L, merger.getMetrics().get("merges"));
+    }
+
+    @Test
+    void mergedListsAreCappedAndFormattedLikeABatch() {
+        BatchAnalysisMerger capped = new BatchAnalysisMerger(0.5, 2);
+        MergedAnalysis merged = capped.merge(List.of(new BatchResult(
+                analysis(List.of("Loud", "Light", "Cheap"), List.of(), "Good", "7.456"), 5)));
+
+        assertEquals(List.of("Loud", "Light"), merged.pros());
+        assertEquals("PROS:-\n- Loud\n- Light\nCONS:-\n- No cons found\nVERDICT:-Buy it\nRATING:-7.46",
+                merged.format("Buy it"));
+        // Its own output parses back to the same analysis
+        assertEquals(merged.pros(), capped.merge(List.of(new BatchResult(merged.format("Buy it"), 5))).pros());
+    }
+
+    private static String analysis(List<String> pros, List<String> cons, String verdict, String rating) {
+        StringBuilder out = new StringBuilder("PROS:-\n");
+        (pros.isEmpty() ? List.of("No pros found") : pros).forEach(p -> out.append("- ").append(p).append('\n'));
+        out.append("CONS:-\n");
+        (cons.isEmpty() ? List.of("No cons found") : cons).forEach(c -> out.append("- ").append(c).append('\n'));
+        return out.append("VERDICT:-").append(verdict).append("\nRATING:-").append(rating).toString();
+    }
+}
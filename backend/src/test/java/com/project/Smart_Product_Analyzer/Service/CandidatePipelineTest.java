@@ -0,0 +1,83 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CandidatePipelineTest {
+
+    // Scope each launch ran in, by product url
+    private final Map<String, CancellationScope> scopes = new LinkedHashMap<>();
+
+    private CompletableFuture<Product> launch(String url) {
+        scopes.put(url, CancellationScope.current());
+        return new CompletableFuture<>();
+    }
+
+    @Test
+    void replacedCandidateHasItsScopeCancelled() {
+        CandidatePipeline pipeline = new CandidatePipeline(2, 4.0, this::launch);
+
+        pipeline.offer(card("a", 4.1));
+        pipeline.offer(card("b", 4.5));
+        pipeline.offer(card("c", 4.8));
+
+        assertTrue(scopes.get("a").isCancelled());
+        assertFalse(scopes.get("b").isCancelled());
+        assertFalse(scopes.get("c").isCancelled());
+        assertEquals(1, pipeline.getCancelled());
+        assertEquals(2, pipeline.results().size());
+    }
+
+    @Test
+    void cancellingTheAnalysisCancelsEveryCandidate() {
+        CancellationScope analysis = new CancellationScope();
+        CandidatePipeline pipeline;
+        try (CancellationScope.Registration ignored = analysis.install()) {
+            pipeline = new CandidatePipeline(5, 4.0, this::launch);
+        }
+        pipeline.offer(card("a", 4.1));
+        pipeline.offer(card("b", 4.5));
+
+        analysis.cancel();
+
+        assertTrue(scopes.get("a").isCancelled());
+        assertTrue(scopes.get("b").isCancelled());
+    }
+
+    @Test
+    void candidateScopesShareTheAnalysisDeadline() {
+        CancellationScope analysis = new CancellationScope();
+        analysis.setDeadline(0);
+        CandidatePipeline pipeline;
+        try (CancellationScope.Registration ignored = analysis.install()) {
+            pipeline = new CandidatePipeline(5, 4.0, this::launch);
+        }
+        pipeline.offer(card("a", 4.1));
+
+        assertTrue(scopes.get("a").isOverBudget());
+        assertTrue(analysis.wasOverBudget());
+    }
+
+    @Test
+    void lowRatedAndRepeatedCardsAreIgnored() {
+        CandidatePipeline pipeline = new CandidatePipeline(5, 4.0, this::launch);
+
+        pipeline.offer(card("a", 3.9));
+        pipeline.offer(card("b", 4.2));
+        pipeline.offer(card("b", 4.2));
+
+        assertEquals(1, pipeline.getStarted());
+    }
+
+    private static Product card(String url, double rating) {
+        return Product.builder().name(url).url(url).rating(rating).build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Exception.ScraperBlockedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HostCircuitBreakerTest {
+
+    private static final String HOST = "www.amazon.in";
+
+    @Test
+    void opensAfterThresholdOfConsecutiveBlocks() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(3, 60_000, 600_000, 60_000);
+
+        breaker.recordBlocked(HOST);
+        breaker.recordBlocked(HOST);
+        assertEquals(HostCircuitBreaker.State.CLOSED, breaker.getState(HOST));
+        assertNull(breaker.checkAllowed(HOST));
+
+        breaker.recordBlocked(HOST);
+        assertEquals(HostCircuitBreaker.State.OPEN, breaker.getState(HOST));
+        assertThrows(ScraperBlockedException.class, () -> breaker.checkAllowed(HOST));
+    }
+
+    @Test
+    void successResetsTheBlockCount() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(2, 60_000, 600_000, 60_000);
+
+        breaker.recordBlocked(HOST);
+        breaker.recordSuccess(HOST);
+        breaker.recordBlocked(HOST);
+
+        assertEquals(HostCircuitBreaker.State.CLOSED, breaker.getState(HOST));
+    }
+
+    @Test
+    void onlyOneProbeIsLetThroughOnceBackoffHasPassed() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(1, 0, 0, 60_000);
+        breaker.recordBlocked(HOST);
+
+        HostCircuitBreaker.Probe probe = breaker.checkAllowed(HOST);
+
+        assertNotNull(probe);
+        assertEquals(HostCircuitBreaker.State.HALF_OPEN, breaker.getState(HOST));
+        assertThrows(ScraperBlockedException.class, () -> breaker.checkAllowed(HOST));
+    }
+
+    @Test
+    void successfulProbeClosesTheCircuit() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(1, 0, 0, 60_000);
+        breaker.recordBlocked(HOST);
+
+        try (HostCircuitBreaker.Probe ignored = breaker.checkAllowed(HOST)) {
+            breaker.recordSuccess(HOST);
+        }
+
+        assertEquals(HostCircuitBreaker.State.CLOSED, breaker.getState(HOST));
+        assertNull(breaker.checkAllowed(HOST));
+    }
+
+    @Test
+    void blockedProbeReopensWithDoubledBackoff() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(1, 1, 600_000, 60_000);
+        breaker.recordBlocked(HOST);
+        waitMillis(5);
+
+        try (HostCircuitBreaker.Probe ignored = breaker.checkAllowed(HOST)) {
+            breaker.recordBlocked(HOST);
+        }
+
+        assertEquals(HostCircuitBreaker.State.OPEN, breaker.getState(HOST));
+        assertEquals(2L, hostMetric(breaker, "backoffMs"));
+    }
+
+    @Test
+    void probeClosedWithoutOutcomeHandsOverToTheNextCaller() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(1, 0, 0, 60_000);
+        breaker.recordBlocked(HOST);
+
+        HostCircuitBreaker.Probe probe = breaker.checkAllowed(HOST);
+        // e.g. HTTP fetch failed and the browser lease timed out
+        probe.close();
+
+        assertEquals(HostCircuitBreaker.State.OPEN, breaker.getState(HOST));
+        assertNotNull(breaker.checkAllowed(HOST));
+    }
+
+    @Test
+    void closingAStaleProbeDoesNotReleaseItsReplacement() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(1, 0, 0, 0);
+        breaker.recordBlocked(HOST);
+
+        HostCircuitBreaker.Probe lost = breaker.checkAllowed(HOST);
+        // Deadline of 0 ms: the next caller replaces the lost probe
+        HostCircuitBreaker.Probe replacement = breaker.checkAllowed(HOST);
+        lost.close();
+
+        assertNotNull(replacement);
+        assertEquals(HostCircuitBreaker.State.HALF_OPEN, breaker.getState(HOST));
+    }
+
+    @Test
+    void lostProbeIsReplacedAfterItsDeadline() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(1, 0, 0, 20);
+        breaker.recordBlocked(HOST);
+        breaker.checkAllowed(HOST);
+
+        assertThrows(ScraperBlockedException.class, () -> breaker.checkAllowed(HOST));
+        waitMillis(40);
+        assertNotNull(breaker.checkAllowed(HOST));
+    }
+
+    @Test
+    void hostsHaveSeparateCircuits() {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(1, 60_000, 600_000, 60_000);
+
+        breaker.recordBlocked(HOST);
+
+        assertNull(breaker.checkAllowed("www.amazon.com"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object hostMetric(HostCircuitBreaker breaker, String name) {
+        return ((Map<String, Object>) breaker.getMetrics().get(HOST)).get(name);
+    }
+
+    private static void waitMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InFlightAnalysesTest {
+
+    @Test
+    void concurrentCallersShareOneRunButGetTheirOwnProducts() throws Exception {
+        InFlightAnalyses inFlight = new InFlightAnalyses();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Product> leaderProducts = List.of(product("Phone"));
+
+        CompletableFuture<List<Product>> leader = CompletableFuture.supplyAsync(() -> inFlight.call("key", () -> {
+            await(release);
+            return leaderProducts;
+        }));
+        waitFor(() -> metric(inFlight, "computations") == 1);
+        CompletableFuture<List<Product>> follower = CompletableFuture.supplyAsync(() -> inFlight.call("key", () -> {
+            throw new AssertionError("Follower must not run the analysis");
+        }));
+        waitFor(() -> metric(inFlight, "coalescedCalls") == 1);
+        release.countDown();
+
+        List<Product> followed = follower.get(5, TimeUnit.SECONDS);
+        assertSame(leaderProducts, leader.get(5, TimeUnit.SECONDS));
+        assertEquals(leaderProducts, followed);
+        assertNotSame(leaderProducts.get(0), followed.get(0));
+
+        followed.get(0).setRecommended(true);
+        assertFalse(leaderProducts.get(0).isRecommended());
+    }
+
+    @Test
+    void lateStreamGetsWhatWasSentThenTheRest() {
+        ProductBroadcast broadcast = new ProductBroadcast();
+        broadcast.send(product("First"));
+
+        RecordingEmitter late = new RecordingEmitter();
+        broadcast.attach(late);
+        broadcast.send(product("Second"));
+        broadcast.complete();
+
+        assertEquals(List.of("First", "Second"), late.names());
+        assertTrue(late.completed);
+    }
+
+    @Test
+    void productsAreSnapshottedWhenSent() throws Exception {
+        ProductBroadcast broadcast = new ProductBroadcast();
+        Product product = product("Phone");
+        broadcast.send(product);
+        product.setName("Changed after sending");
+
+        RecordingEmitter stream = new RecordingEmitter();
+        broadcast.attach(stream);
+        broadcast.complete(List.of(product));
+
+        assertEquals("Phone", stream.names().get(0));
+        assertEquals("Phone", broadcast.result().get().get(0).getName());
+    }
+
+    @Test
+    void finalListReachesStreamsThatGotNothingYet() throws Exception {
+        ProductBroadcast broadcast = new ProductBroadcast();
+        RecordingEmitter stream = new RecordingEmitter();
+        broadcast.attach(stream);
+
+        broadcast.complete(List.of(product("One"), product("Two")));
+
+        assertEquals(List.of("One", "Two"), stream.names());
+        assertTrue(stream.completed);
+        assertEquals(2, broadcast.result().get().size());
+    }
+
+    @Test
+    void lastStreamLeavingCancelsTheAnalysis() {
+        ProductBroadcast broadcast = new ProductBroadcast();
+        RecordingEmitter first = new RecordingEmitter();
+        RecordingEmitter second = new RecordingEmitter();
+        broadcast.attach(first);
+        broadcast.attach(second);
+
+        first.disconnect();
+        assertFalse(broadcast.scope().isCancelled());
+        second.disconnect();
+        assertTrue(broadcast.scope().isCancelled());
+    }
+
+    @Test
+    void synchronousCallerKeepsTheAnalysisAlive() {
+        ProductBroadcast broadcast = new ProductBroadcast();
+        RecordingEmitter stream = new RecordingEmitter();
+        broadcast.subscribe();
+        broadcast.attach(stream);
+
+        stream.disconnect();
+
+        assertFalse(broadcast.scope().isCancelled());
+    }
+
+    @Test
+    void failureEndsStreamsWithTheError() {
+        ProductBroadcast broadcast = new ProductBroadcast();
+        RecordingEmitter stream = new RecordingEmitter();
+        broadcast.attach(stream);
+        IllegalStateException error = new IllegalStateException("scrape failed");
+
+        broadcast.fail(error);
+
+        assertSame(error, stream.error);
+        assertTrue(broadcast.result().isCompletedExceptionally());
+    }
+
+    @Test
+    void slowStreamDoesNotBlockOtherClients() throws Exception {
+        ProductBroadcast broadcast = new ProductBroadcast();
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(product -> {
+            sending.countDown();
+            await(unblock);
+        });
+        broadcast.attach(slow);
+
+        CompletableFuture<Void> stuck = CompletableFuture.runAsync(() -> broadcast.send(product("Phone")));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // The broadcast is not locked while the slow client is being written to
+        RecordingEmitter late = new RecordingEmitter();
+        CompletableFuture.runAsync(() -> broadcast.attach(late)).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("Phone"), late.names());
+        CompletableFuture.runAsync(broadcast::subscribe).get(5, TimeUnit.SECONDS);
+
+        unblock.countDown();
+        stuck.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("Phone"), slow.names());
+    }
+
+    @Test
+    void streamFollowerGetsItsOwnResult() throws Exception {
+        InFlightAnalyses inFlight = new InFlightAnalyses();
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter leaderStream = new RecordingEmitter();
+        RecordingEmitter followerStream = new RecordingEmitter();
+
+        CompletableFuture<CompletableFuture<List<Product>>> leader = CompletableFuture.supplyAsync(() ->
+                inFlight.stream("key", leaderStream, broadcast -> {
+                    broadcast.send(product("Main"));
+                    await(release);
+                    broadcast.send(product("Similar"));
+                    broadcast.complete();
+                }));
+        waitFor(() -> leaderStream.names().size() == 1);
+        CompletableFuture<List<Product>> follower = inFlight.stream("key", followerStream, broadcast -> {
+            throw new AssertionError("Follower must not run the analysis");
+        });
+        release.countDown();
+
+        List<Product> leaderResult = leader.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        List<Product> followerResult = follower.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("Main", "Similar"), followerStream.names());
+        assertEquals(leaderResult, followerResult);
+        assertNotSame(leaderResult.get(0), followerResult.get(0));
+    }
+
+    @Test
+    void analysisCancelledByItsClientsIsNotJoined() throws Exception {
+        InFlightAnalyses inFlight = new InFlightAnalyses();
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter leftEarly = new RecordingEmitter();
+
+        CompletableFuture<?> cancelled = CompletableFuture.runAsync(() ->
+                inFlight.stream("key", leftEarly, broadcast -> {
+                    await(release);
+                    broadcast.scope().throwIfCancelled();
+                }));
+        waitFor(() -> metric(inFlight, "computations") == 1);
+        leftEarly.disconnect();
+
+        // Still unwinding, but a new caller starts a run of its own
+        List<Product> fresh = CompletableFuture.supplyAsync(() ->
+                inFlight.call("key", () -> List.of(product("Fresh")))).get(5, TimeUnit.SECONDS);
+        release.countDown();
+        cancelled.get(5, TimeUnit.SECONDS);
+
+        assertEquals("Fresh", fresh.get(0).getName());
+        assertEquals(2L, metric(inFlight, "computations"));
+        assertEquals(1L, metric(inFlight, "replacedCancelled"));
+        assertEquals(0, inFlight.getMetrics().get("inFlight"));
+    }
+
+    private static Product product(String name) {
+        return Product.builder()
+                .name(name)
+                .url("https://www.amazon.in/dp/B00000000" + Math.abs(name.hashCode() % 10))
+                .pros(new ArrayList<>(List.of("Good")))
+                .build();
+    }
+
+    private static long metric(InFlightAnalyses inFlight, String name) {
+        return (long) inFlight.getMetrics().get(name);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<Product> sent = new ArrayList<>();
+        private final Consumer<Product> onSend;
+        private Runnable completion;
+        volatile boolean completed;
+        volatile Throwable error;
+
+        RecordingEmitter() {
+            this(product -> {
+            });
+        }
+
+        RecordingEmitter(Consumer<Product> onSend) {
+            this.onSend = onSend;
+        }
+
+        @Override
+        public void send(Object object) {
+            onSend.accept((Product) object);
+            synchronized (sent) {
+                sent.add((Product) object);
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            error = ex;
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            completion = callback;
+        }
+
+        List<String> names() {
+            synchronized (sent) {
+                return sent.stream().map(Product::getName).toList();
+            }
+        }
+
+        void disconnect() {
+            completion.run();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyBudgetTest {
+
+    private final LatencyBudget budget = new LatencyBudget();
+
+    @AfterEach
+    void shutdown() {
+        budget.shutdown();
+    }
+
+    @Test
+    void moreBudgetedAnalysesThanTaskThreadsAllFinishInTime() throws Exception {
+        // Shaped like taskExecutor: 5 core threads, and more only once 25 tasks are queued
+        ThreadPoolExecutor taskExecutor = new ThreadPoolExecutor(5, 10, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(25));
+        try {
+            List<CompletableFuture<List<String>>> analyses = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                analyses.add(CompletableFuture.supplyAsync(() -> {
+                    CancellationScope scope = new CancellationScope();
+                    scope.setDeadline(5_000);
+                    try (CancellationScope.Registration ignored = scope.install()) {
+                        List<String> stages = new ArrayList<>();
+                        for (int stage = 0; stage < 3; stage++) {
+                            stages.add(budget.run(() -> {
+                                sleep(50);
+                                return "done";
+                            }));
+                        }
+                        assertFalse(scope.wasOverBudget());
+                        return stages;
+                    }
+                }, taskExecutor));
+            }
+
+            for (CompletableFuture<List<String>> analysis : analyses) {
+                assertEquals(List.of("done", "done", "done"), analysis.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(0, budget.getCancelledStages());
+        } finally {
+            taskExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void stageStillRunningAtTheDeadlineIsCancelled() throws Exception {
+        CancellationScope scope = new CancellationScope();
+        scope.setDeadline(100);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        String result;
+        try (CancellationScope.Registration ignored = scope.install()) {
+            result = budget.run(() -> {
+                try (CancellationScope.Registration interrupt = CancellationScope.current().interruptOnCancel()) {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return "too late";
+            });
+        }
+
+        assertNull(result);
+        assertTrue(scope.wasOverBudget());
+        assertFalse(scope.isCancelled());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, budget.getCancelledStages());
+    }
+
+    @Test
+    void nothingStartsOnceTheBudgetIsSpent() {
+        CancellationScope scope = new CancellationScope();
+        scope.setDeadline(0);
+
+        try (CancellationScope.Registration ignored = scope.install()) {
+            assertNull(budget.run(() -> {
+                throw new AssertionError("Stage must not start past the deadline");
+            }));
+        }
+    }
+
+    @Test
+    void withoutABudgetTheStageRunsOnTheCaller() {
+        Thread caller = Thread.currentThread();
+
+        assertSame(caller, budget.run(Thread::currentThread));
+    }
+
+    @Test
+    void stageFailuresReachTheCaller() {
+        CancellationScope scope = new CancellationScope();
+        scope.setDeadline(5_000);
+        IllegalStateException failure = new IllegalStateException("scrape failed");
+
+        try (CancellationScope.Registration ignored = scope.install()) {
+            assertSame(failure, assertThrows(IllegalStateException.class, () -> budget.run(() -> {
+                throw failure;
+            })));
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
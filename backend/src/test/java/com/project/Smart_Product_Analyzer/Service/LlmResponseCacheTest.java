@@ -0,0 +1,223 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Config.PromptTemplate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmResponseCacheTest {
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final PromptTemplate TEMPLATE = PromptTemplate.compile("productAnalyzer.txt",
+            "Reviews:\n{reviews:lines}\nFor {name}");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keyIgnoresWhitespaceAndValueOrder() {
+        LlmResponseCache cache = cache(DAY_MS, 1_000_000);
+        Map<String, Object> ordered = new LinkedHashMap<>();
+        ordered.put("reviews", List.of("Great  sound", "Weak\tbass "));
+        ordered.put("name", "Earbuds");
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        reversed.put("name", " Earbuds");
+        reversed.put("reviews", List.of("Great sound", "Weak bass"));
+
+        assertEquals(key(cache, "model-a", TEMPLATE, ordered), key(cache, "model-a", TEMPLATE, reversed));
+    }
+
+    @Test
+    void keyChangesWithModelPromptAndContent() {
+        LlmResponseCache cache = cache(DAY_MS, 1_000_000);
+        Map<String, Object> values = Map.of("reviews", List.of("Great sound"), "name", "Earbuds");
+        String key = key(cache, "model-a", TEMPLATE, values);
+
+        assertNotEquals(key, key(cache, "model-b", TEMPLATE, values));
+        assertNotEquals(key, key(cache, "model-a",
+                PromptTemplate.compile("productAnalyzer.txt", TEMPLATE.getSource() + "."), values));
+        assertNotEquals(key, key(cache, "model-a", TEMPLATE,
+                Map.of("reviews", List.of("great sound"), "name", "Earbuds")));
+        // Lines are kept apart, not just concatenated
+        assertNotEquals(key(cache, "model-a", TEMPLATE, Map.of("reviews", List.of("Great", "sound"), "name", "x")),
+                key(cache, "model-a", TEMPLATE, Map.of("reviews", List.of("Great sound"), "name", "x")));
+    }
+
+    @Test
+    void secondCallIsServedWithoutCallingTheModel() {
+        LlmResponseCache cache = cache(DAY_MS, 1_000_000);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("PROS:- Loud", compute(cache, "Speaker", () -> {
+            calls.incrementAndGet();
+            return "PROS:- Loud";
+        }));
+        LlmResponseCache.Lookup lookup = cache.lookup("model", TEMPLATE, values("Speaker"));
+
+        assertTrue(lookup.hit());
+        assertEquals("PROS:- Loud", cache.getOrCompute(lookup, () -> {
+            throw new AssertionError("Model must not be called on a hit");
+        }));
+        assertEquals(1, calls.get());
+        assertEquals(1L, cache.getMetrics().get("misses"));
+    }
+
+    @Test
+    void blankResponsesAreNotCached() {
+        LlmResponseCache cache = cache(DAY_MS, 1_000_000);
+
+        compute(cache, "Speaker", () -> " ");
+
+        assertFalse(cache.lookup("model", TEMPLATE, values("Speaker")).hit());
+    }
+
+    @Test
+    void responsesSurviveARestart() throws Exception {
+        LlmResponseCache cache = cache(DAY_MS, 1_000_000);
+        compute(cache, "Speaker", () -> "PROS:- Loud");
+        waitFor(() -> files(".txt").size() == 1);
+        cache.shutdown();
+
+        LlmResponseCache restarted = cache(DAY_MS, 1_000_000);
+
+        assertEquals("PROS:- Loud", restarted.lookup("model", TEMPLATE, values("Speaker")).response());
+        assertEquals(1L, restarted.getMetrics().get("diskHits"));
+    }
+
+    @Test
+    void memoryEntriesExpireAfterTheTtl() throws Exception {
+        LlmResponseCache cache = new LlmResponseCache(true, dir.toString(), 20, 100, 1_000_000);
+        compute(cache, "Speaker", () -> "PROS:- Loud");
+        waitFor(() -> files(".txt").size() == 1);
+
+        Thread.sleep(50);
+
+        assertNull(cache.lookup("model", TEMPLATE, values("Speaker")).response());
+        assertEquals(1L, cache.getMetrics().get("expirations"));
+        assertTrue(files(".txt").isEmpty());
+    }
+
+    @Test
+    void diskEntriesExpireByWriteTimeEvenWhenRead() throws Exception {
+        LlmResponseCache cache = cache(DAY_MS, 1_000_000);
+        compute(cache, "Speaker", () -> "PROS:- Loud");
+        waitFor(() -> files(".txt").size() == 1);
+        cache.shutdown();
+        Path file = files(".txt").get(0);
+        long written = System.currentTimeMillis() - 2 * DAY_MS;
+        Files.getFileAttributeView(file, BasicFileAttributeView.class)
+                .setTimes(FileTime.fromMillis(written), FileTime.fromMillis(System.currentTimeMillis()), null);
+
+        LlmResponseCache restarted = cache(DAY_MS, 1_000_000);
+
+        assertFalse(restarted.lookup("model", TEMPLATE, values("Speaker")).hit());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void evictionDropsTheLeastRecentlyUsedFile() throws Exception {
+        LlmResponseCache cache = cache(DAY_MS, 250);
+        compute(cache, "Old but read", () -> "a".repeat(100));
+        compute(cache, "Newer, never read", () -> "b".repeat(100));
+        waitFor(() -> files(".txt").size() == 2);
+        long now = System.currentTimeMillis();
+        age(fileContaining("a"), now - 2 * 60 * 60 * 1000);
+        age(fileContaining("b"), now - 60 * 60 * 1000);
+
+        // Served from memory, which must still mark its file as used
+        assertTrue(cache.lookup("model", TEMPLATE, values("Old but read")).hit());
+        assertEquals(1L, cache.getMetrics().get("memoryHits"));
+        compute(cache, "Third", () -> "c".repeat(100));
+        waitFor(() -> files(".txt").size() == 2);
+
+        assertTrue(Files.exists(fileContaining("a")));
+        assertTrue(Files.exists(fileContaining("c")));
+    }
+
+    @Test
+    void orphanedTempFilesAreRemovedAtStartup() throws Exception {
+        Files.writeString(dir.resolve("abc123.tmp"), "half a response");
+
+        LlmResponseCache cache = cache(DAY_MS, 1_000_000);
+
+        assertTrue(files(".tmp").isEmpty());
+        assertEquals(0L, cache.getMetrics().get("diskBytes"));
+    }
+
+    @Test
+    void disabledCacheAlwaysCallsTheModel() {
+        LlmResponseCache cache = new LlmResponseCache(false, dir.toString(), DAY_MS, 100, 1_000_000);
+        AtomicInteger calls = new AtomicInteger();
+
+        compute(cache, "Speaker", () -> "r" + calls.incrementAndGet());
+        compute(cache, "Speaker", () -> "r" + calls.incrementAndGet());
+
+        assertEquals(2, calls.get());
+        assertFalse(cache.lookup("model", TEMPLATE, values("Speaker")).hit());
+    }
+
+    private LlmResponseCache cache(long ttlMs, long maxBytes) {
+        return new LlmResponseCache(true, dir.toString(), ttlMs, 100, maxBytes);
+    }
+
+    private static String compute(LlmResponseCache cache, String name, Supplier<String> call) {
+        return cache.getOrCompute(cache.lookup("model", TEMPLATE, values(name)), call);
+    }
+
+    private static Map<String, Object> values(String name) {
+        return Map.of("reviews", List.of("Good"), "name", name);
+    }
+
+    private static String key(LlmResponseCache cache, String model, PromptTemplate template,
+            Map<String, ?> values) {
+        return cache.lookup(model, template, values).key();
+    }
+
+    private List<Path> files(String suffix) {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(suffix)).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path fileContaining(String letter) throws Exception {
+        for (Path file : files(".txt")) {
+            if (Files.readString(file).startsWith(letter))
+                return file;
+        }
+        return dir.resolve("missing-" + letter);
+    }
+
+    private static void age(Path file, long accessedAt) throws Exception {
+        Files.getFileAttributeView(file, BasicFileAttributeView.class)
+                .setTimes(null, FileTime.fromMillis(accessedAt), null);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting");
+            Thread.sleep(5);
+        }
+    }
+}
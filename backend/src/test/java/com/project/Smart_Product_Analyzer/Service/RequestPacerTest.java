@@ -0,0 +1,132 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestPacerTest {
+
+    private RequestPacer pacer;
+
+    @AfterEach
+    void shutdown() {
+        if (pacer != null)
+            pacer.shutdown();
+    }
+
+    @Test
+    void burstIsGrantedAtOnceThenPermitsArePaced() throws Exception {
+        // 20/s: one permit every 50 ms after a burst of 2
+        pacer = new RequestPacer(20, 2, 0, "");
+
+        assertTrue(pacer.acquire("www.amazon.in").isDone());
+        assertTrue(pacer.acquire("www.amazon.in").isDone());
+        CompletableFuture<Void> third = pacer.acquire("www.amazon.in");
+
+        assertFalse(third.isDone());
+        third.get(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void hostsArePacedIndependently() {
+        pacer = new RequestPacer(0.1, 1, 0, "");
+
+        assertTrue(pacer.acquire("www.amazon.in").isDone());
+        assertFalse(pacer.acquire("www.amazon.in").isDone());
+        assertTrue(pacer.acquire("www.amazon.com").isDone());
+    }
+
+    @Test
+    void hostNamesAreCaseInsensitive() {
+        pacer = new RequestPacer(0.1, 1, 0, "");
+
+        assertTrue(pacer.acquire("WWW.Amazon.in").isDone());
+        assertFalse(pacer.acquire("www.amazon.in").isDone());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void hostOverridesReplaceTheDefaultsAndMalformedOnesAreIgnored() {
+        pacer = new RequestPacer(1, 3, 0, "www.amazon.in=0.5/1, broken, www.amazon.com=2");
+
+        pacer.acquire("www.amazon.in");
+        pacer.acquire("www.amazon.com");
+        pacer.acquire("www.flipkart.com");
+        Map<String, Object> metrics = pacer.getMetrics();
+
+        Map<String, Object> in = (Map<String, Object>) metrics.get("www.amazon.in");
+        assertEquals(0.5, in.get("ratePerSecond"));
+        assertEquals(1, in.get("burst"));
+        Map<String, Object> com = (Map<String, Object>) metrics.get("www.amazon.com");
+        assertEquals(2.0, com.get("ratePerSecond"));
+        assertEquals(3, com.get("burst"));
+        Map<String, Object> other = (Map<String, Object>) metrics.get("www.flipkart.com");
+        assertEquals(1.0, other.get("ratePerSecond"));
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanTheBurstAtOnce() throws Exception {
+        pacer = new RequestPacer(0.1, 3, 0, "");
+        int callers = 16;
+        ExecutorService threads = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<CompletableFuture<Void>>> permits = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                permits.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return pacer.acquire("www.amazon.in");
+                }, threads));
+            }
+            start.countDown();
+
+            int immediate = 0;
+            for (CompletableFuture<CompletableFuture<Void>> permit : permits) {
+                if (permit.get(5, TimeUnit.SECONDS).isDone())
+                    immediate++;
+            }
+            assertEquals(3, immediate);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void awaitEndsOnInterrupt() throws Exception {
+        pacer = new RequestPacer(0.01, 1, 0, "");
+        pacer.acquire("www.amazon.in");
+
+        AtomicReference<Throwable> outcome = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                pacer.await("www.amazon.in");
+            } catch (Throwable e) {
+                outcome.set(e);
+            }
+        });
+        waiter.start();
+        Thread.sleep(50);
+        waiter.interrupt();
+        waiter.join(2_000);
+
+        assertFalse(waiter.isAlive());
+        assertTrue(outcome.get() instanceof InterruptedException);
+    }
+}
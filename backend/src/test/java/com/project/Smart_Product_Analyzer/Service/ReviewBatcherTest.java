@@ -0,0 +1,100 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReviewBatcherTest {
+
+    @Test
+    void tokensAreEstimatedFromCharactersOrWords() {
+        ReviewBatcher batcher = new ReviewBatcher(1500, 400);
+
+        assertEquals(0, batcher.estimateTokens(""));
+        // 16 chars / 4 and 3 words * 4/3 both give 4
+        assertEquals(4, batcher.estimateTokens("good sound, okay"));
+        // Many short words: words * 4/3 wins
+        assertEquals(8, batcher.estimateTokens("a b c d e f"));
+        // One long token without spaces: chars / 4 wins
+        assertEquals(10, batcher.estimateTokens("x".repeat(40)));
+    }
+
+    @Test
+    void shortReviewsShareABatchAndOrderIsKept() {
+        ReviewBatcher batcher = new ReviewBatcher(1500, 400);
+        List<String> reviews = List.of("Great battery", "Screen is dim", "Fast delivery", "Worth it");
+
+        List<List<String>> batches = batcher.pack(reviews);
+
+        assertEquals(List.of(reviews), batches);
+    }
+
+    @Test
+    void batchesStayWithinTheTokenBudget() {
+        ReviewBatcher batcher = new ReviewBatcher(50, 40);
+        List<String> reviews = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            reviews.add("review number " + i + " says the product works well enough for the price");
+
+        List<List<String>> batches = batcher.pack(reviews);
+
+        assertTrue(batches.size() > 1);
+        List<String> flattened = new ArrayList<>();
+        for (List<String> batch : batches) {
+            int tokens = batch.stream().mapToInt(review -> batcher.estimateTokens(review) + 1).sum();
+            assertTrue(tokens <= 50, "Batch over budget: " + tokens);
+            flattened.addAll(batch);
+        }
+        assertEquals(reviews, flattened);
+    }
+
+    @Test
+    void overlongReviewIsCutAtAWordBoundary() {
+        ReviewBatcher batcher = new ReviewBatcher(1500, 20);
+        String review = String.join(" ", Collections.nCopies(100, "excellent"));
+
+        String packed = batcher.pack(List.of(review)).get(0).get(0);
+
+        assertTrue(packed.endsWith(" ..."));
+        String kept = packed.substring(0, packed.length() - " ...".length());
+        assertTrue(batcher.estimateTokens(kept) <= 20);
+        assertTrue(review.startsWith(kept + " "), "Cut inside a word: " + kept);
+        assertEquals(1L, batcher.getMetrics().get("truncatedReviews"));
+    }
+
+    @Test
+    void reviewWithoutSpacesIsStillCut() {
+        ReviewBatcher batcher = new ReviewBatcher(1500, 10);
+
+        String packed = batcher.pack(List.of("y".repeat(500))).get(0).get(0);
+
+        assertTrue(batcher.estimateTokens(packed.substring(0, packed.length() - " ...".length())) <= 10);
+    }
+
+    @Test
+    void reviewLimitNeverExceedsTheBatchBudget() {
+        ReviewBatcher batcher = new ReviewBatcher(10, 400);
+
+        List<List<String>> batches = batcher.pack(List.of("z".repeat(400)));
+
+        assertEquals(1, batches.size());
+        assertTrue(batcher.estimateTokens(batches.get(0).get(0)) <= 12);
+    }
+
+    @Test
+    void callsSavedAreCountedAgainstFixedBatchesOfFive() {
+        ReviewBatcher batcher = new ReviewBatcher(1500, 400);
+
+        batcher.pack(Collections.nCopies(12, "Nice"));
+
+        assertEquals(3, batcher.fixedBatchCount(12));
+        assertEquals(1L, batcher.getMetrics().get("batches"));
+        assertEquals(2L, batcher.getMetrics().get("callsSaved"));
+        assertEquals(0, new ReviewBatcher(1500, 400).fixedBatchCount(0));
+    }
+}
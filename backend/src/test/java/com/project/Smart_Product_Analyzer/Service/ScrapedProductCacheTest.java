@@ -0,0 +1,117 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScrapedProductCacheTest {
+
+    private static final String URL = "https://www.amazon.in/Some-Phone/dp/B000000001/ref=sr_1_1?tag=x";
+
+    @Test
+    void urlVariantsOfTheSameAsinShareAnEntry() {
+        ScrapedProductCache cache = new ScrapedProductCache(true, 10, 60_000, 60_000);
+        cache.put(URL, product("Phone", "₹10,000"));
+
+        ScrapedProductCache.Lookup lookup = cache.get("https://www.amazon.in/dp/B000000001?th=1");
+
+        assertNotNull(lookup);
+        assertTrue(lookup.priceFresh());
+        assertEquals("Phone", lookup.product().getName());
+        assertNull(cache.get("https://www.amazon.com/dp/B000000001"), "Marketplaces are cached separately");
+    }
+
+    @Test
+    void storedAndReturnedProductsAreCopies() {
+        ScrapedProductCache cache = new ScrapedProductCache(true, 10, 60_000, 60_000);
+        Product original = product("Phone", "₹10,000");
+        cache.put(URL, original);
+
+        original.getPros().add("added after put");
+        Product first = cache.get(URL).product();
+        first.setPros(List.of("analysis output"));
+        first.setName("renamed");
+        Product second = cache.get(URL).product();
+
+        assertEquals(List.of("Good battery"), second.getPros());
+        assertEquals("Phone", second.getName());
+    }
+
+    @Test
+    void stalePriceIsReportedUntilUpdated() throws InterruptedException {
+        ScrapedProductCache cache = new ScrapedProductCache(true, 10, 60_000, 0);
+        cache.put(URL, product("Phone", "₹10,000"));
+        Thread.sleep(5);
+
+        ScrapedProductCache.Lookup stale = cache.get(URL);
+        assertFalse(stale.priceFresh());
+        assertEquals("₹10,000", stale.product().getPrice());
+
+        cache.updatePrice(URL, "₹9,499");
+        ScrapedProductCache.Lookup refreshed = cache.get(URL);
+        assertEquals("₹9,499", refreshed.product().getPrice());
+        assertEquals("Phone", refreshed.product().getName());
+        assertEquals(1L, cache.getMetrics().get("stalePriceHits"));
+    }
+
+    @Test
+    void entryExpiresWithItsReviews() throws InterruptedException {
+        ScrapedProductCache cache = new ScrapedProductCache(true, 10, 0, 0);
+        cache.put(URL, product("Phone", "₹10,000"));
+        Thread.sleep(5);
+
+        assertNull(cache.get(URL));
+        assertEquals(1L, cache.getMetrics().get("expirations"));
+        assertEquals(0, cache.getMetrics().get("size"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        ScrapedProductCache cache = new ScrapedProductCache(true, 2, 60_000, 60_000);
+        cache.put("https://www.amazon.in/dp/B000000001", product("One", "₹1"));
+        cache.put("https://www.amazon.in/dp/B000000002", product("Two", "₹2"));
+        cache.get("https://www.amazon.in/dp/B000000001");
+
+        cache.put("https://www.amazon.in/dp/B000000003", product("Three", "₹3"));
+
+        assertNotNull(cache.get("https://www.amazon.in/dp/B000000001"));
+        assertNull(cache.get("https://www.amazon.in/dp/B000000002"));
+        assertNotNull(cache.get("https://www.amazon.in/dp/B000000003"));
+        assertEquals(1L, cache.getMetrics().get("evictions"));
+    }
+
+    @Test
+    void updatingAnUncachedPriceDoesNothing() {
+        ScrapedProductCache cache = new ScrapedProductCache(true, 10, 60_000, 60_000);
+
+        cache.updatePrice(URL, "₹9,499");
+
+        assertNull(cache.get(URL));
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        ScrapedProductCache cache = new ScrapedProductCache(false, 10, 60_000, 60_000);
+        cache.put(URL, product("Phone", "₹10,000"));
+
+        assertNull(cache.get(URL));
+        assertEquals(0, cache.getMetrics().get("size"));
+    }
+
+    private static Product product(String name, String price) {
+        return Product.builder()
+                .url(URL)
+                .name(name)
+                .price(price)
+                .pros(new ArrayList<>(List.of("Good battery")))
+                .build();
+    }
+}
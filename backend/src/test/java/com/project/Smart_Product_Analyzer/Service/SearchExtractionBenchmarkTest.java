@@ -0,0 +1,121 @@
+package com.project.Smart_Product_Analyzer.Service;
+
+import com.project.Smart_Product_Analyzer.Config.PageScripts;
+import com.project.Smart_Product_Analyzer.Config.WebDriverConfig;
+import com.project.Smart_Product_Analyzer.Model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Compares bulk (one script call) and per-element search card extraction on saved search pages,
+ * in headless Chrome. Needs Chrome, so it only runs when pointed at a directory of pages: plain
+ * .html files, or the blobs/ directory of a {@link PageSnapshotStore}.
+ * <pre>
+ * mvn test -Dtest=SearchExtractionBenchmarkTest -Dbenchmark.snapshots=/tmp/smart-product-analyzer/snapshots/blobs
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.snapshots", matches = ".+")
+class SearchExtractionBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchExtractionBenchmarkTest.class);
+    private static final int ROUNDS = 5;
+
+    @Test
+    void bulkExtractionMatchesPerElementAndIsFaster() throws Exception {
+        List<Path> pages = savedPages(Path.of(System.getProperty("benchmark.snapshots")));
+        assertFalse(pages.isEmpty(), "No saved pages found");
+
+        AmazonSearchPageScraper scraper = new AmazonSearchPageScraper(null, null,
+                new PageScripts(new DefaultResourceLoader()), null, null, null, null, null, null,
+                new ReplayServer(null, false, 0, 0, 0, 0.0));
+        WebDriver driver = new WebDriverConfig().webDriver();
+        try {
+            long bulkTotal = 0;
+            long perElementTotal = 0;
+            for (Path page : pages) {
+                driver.get(page.toUri().toString());
+
+                List<Product> bulk = null;
+                List<Product> perElement = null;
+                long bulkNanos = 0;
+                long perElementNanos = 0;
+                // First round warms up and is not counted
+                for (int round = 0; round <= ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    bulk = scraper.extractProductsInBulk(driver, card -> {
+                    });
+                    long bulkRound = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    perElement = scraper.extractProductsPerElement(driver, card -> {
+                    });
+                    long perElementRound = System.nanoTime() - start;
+                    if (round > 0) {
+                        bulkNanos += bulkRound;
+                        perElementNanos += perElementRound;
+                    }
+                }
+
+                assertNotNull(bulk, "Bulk extraction script failed on " + page);
+                assertEquals(cards(perElement), cards(bulk), "Paths disagree on " + page);
+                log.info("{}: {} cards, bulk {} ms, per-element {} ms", page.getFileName(), bulk.size(),
+                        bulkNanos / ROUNDS / 1_000_000.0, perElementNanos / ROUNDS / 1_000_000.0);
+                bulkTotal += bulkNanos;
+                perElementTotal += perElementNanos;
+            }
+            log.info("Search extraction over {} pages: bulk {} ms/page, per-element {} ms/page, speedup {}x",
+                    pages.size(), bulkTotal / ROUNDS / pages.size() / 1_000_000.0,
+                    perElementTotal / ROUNDS / pages.size() / 1_000_000.0,
+                    String.format("%.1f", (double) perElementTotal / Math.max(1, bulkTotal)));
+        } finally {
+            driver.quit();
+        }
+    }
+
+    // Every field a search card sets, so the paths must agree on more than the titles
+    private static List<List<Object>> cards(List<Product> products) {
+        return products.stream()
+                .map(p -> Arrays.<Object>asList(p.getName(), p.getUrl(), p.getRating(), p.getPrice(),
+                        p.getReviewCount()))
+                .toList();
+    }
+
+    // Snapshot blobs are gzipped; Chrome gets them as plain files
+    private static List<Path> savedPages(Path dir) throws IOException {
+        List<Path> pages = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".html")) {
+                    pages.add(file);
+                } else if (name.endsWith(".html.gz")) {
+                    Path unzipped = Files.createTempFile("search-page", ".html");
+                    unzipped.toFile().deleteOnExit();
+                    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                        Files.write(unzipped, in.readAllBytes());
+                    }
+                    pages.add(unzipped);
+                }
+            }
+        }
+        return pages;
+    }
+}